@@ -0,0 +1,85 @@
+package ua.polozov.catalog.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ua.polozov.catalog.dto.BookResponse;
+import ua.polozov.catalog.dto.PriceDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializing a page of {@code GET /api/v1/books} as JSON, CBOR and Smile, and JSON gzipped
+ * the way {@code server.compression} does it. The score is serialization CPU per page; payload
+ * sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookPayloadFormatBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new CBORMapper();
+    private final ObjectMapper smile = new SmileMapper();
+    private List<BookResponse> page;
+
+    @Setup
+    public void setUp() {
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            BigDecimal uah = BigDecimal.valueOf(20_000 + i * 37L, 2);
+            page.add(new BookResponse((long) i + 1, String.format("978%010d", i), "Title of book number " + i,
+                    "Author " + (i % 50), 1950 + (i % 70), new PriceDto(uah, uah.divide(new BigDecimal("44.13"), 2, RoundingMode.HALF_UP)), null));
+        }
+        // sizes do not vary between invocations, so they are reported once per trial
+        try {
+            System.out.printf("%nbytes per page of %d: json=%d cbor=%d smile=%d json+gzip=%d%n", pageSize,
+                    json().length, cbor().length, smile().length, jsonGzip().length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return json.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cbor.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] smile() throws IOException {
+        return smile.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] jsonGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            json.writeValue(gzip, page);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,46 @@
+package ua.polozov.catalog.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+import ua.polozov.catalog.dto.BookResponse;
+import ua.polozov.catalog.dto.PriceDto;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a {@link Book} to {@link BookResponse} (as BookController does) and serializing
+ * it to JSON bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookResponseSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Book book = new Book(42L, "9780131872486", "Thinking in Java", "Bruce Eckel", 2006,
+            new Price(new BigDecimal("1250.00"), new BigDecimal("30.32")));
+
+    @Benchmark
+    public BookResponse toResponse() {
+        return map(book);
+    }
+
+    @Benchmark
+    public byte[] toResponseAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(map(book));
+    }
+
+    private static BookResponse map(Book b) {
+        PriceDto p = new PriceDto(b.getPrice().getUah(), b.getPrice().getEur());
+        return new BookResponse(b.getId(), b.getIsbn(), b.getTitle(), b.getAuthor(), b.getPublicationYear(), p);
+    }
+}
@@ -0,0 +1,53 @@
+package ua.polozov.catalog.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ua.polozov.catalog.service.BookSearchIndex;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BookSearchIndex} queries over synthetic catalogs: a selective query (rare author
+ * token) and a broad one whose terms each match about a tenth of all titles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookSearchBenchmark {
+
+    private static final String[] WORDS = {"java", "spring", "clean", "code", "guide", "data", "art", "design", "patterns", "history"};
+
+    @Param({"100000", "1000000"})
+    public int books;
+
+    private BookSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // no repository: the index is filled directly instead of loaded from the database
+        index = new BookSearchIndex(null);
+        Random random = new Random(11);
+        for (int id = 1; id <= books; id++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " vol " + id;
+            index.add(id, 0, title, "author" + (id % 5000));
+        }
+    }
+
+    @Benchmark
+    public BookSearchIndex.Hits selective() {
+        return index.search("java author42", 0, 20);
+    }
+
+    @Benchmark
+    public BookSearchIndex.Hits broad() {
+        return index.search("clean code", 0, 20);
+    }
+}
@@ -0,0 +1,70 @@
+package ua.polozov.catalog.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.dto.BookRequest;
+import ua.polozov.catalog.dto.PriceDto;
+import ua.polozov.catalog.service.BookService;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of the book write and read paths over embedded H2 at different catalog sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext ctx;
+    private BookService bookService;
+    private AtomicLong nextIsbn;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ctx = CatalogBenchmarkContext.start("book-service", rows);
+        bookService = ctx.getBean(BookService.class);
+        nextIsbn = new AtomicLong(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public Book create() {
+        String isbn = CatalogBenchmarkContext.isbn(nextIsbn.getAndIncrement());
+        return bookService.create(new BookRequest(isbn, "Benchmark", "Author", 2024,
+                new PriceDto(new BigDecimal("250.00"), null)));
+    }
+
+    @Benchmark
+    public Book updatePartial() {
+        long id = ThreadLocalRandom.current().nextLong(1, rows + 1);
+        BigDecimal uah = BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(1_000, 100_000), 2);
+        return bookService.updatePartial(id, new BookRequest(null, null, null, null, new PriceDto(uah, null)));
+    }
+
+    @Benchmark
+    public Optional<Book> findById() {
+        return bookService.findById(ThreadLocalRandom.current().nextLong(1, rows + 1));
+    }
+}
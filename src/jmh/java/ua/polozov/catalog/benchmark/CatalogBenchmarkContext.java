@@ -0,0 +1,59 @@
+package ua.polozov.catalog.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ua.polozov.catalog.CatalogApplication;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+import ua.polozov.catalog.service.RateService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against a private in-memory H2 database seeded with
+ * {@code rows} books, for benchmarks that exercise the real service and repository stack.
+ */
+final class CatalogBenchmarkContext {
+
+    private static final int SEED_CHUNK = 10_000;
+
+    private CatalogBenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String name, int rows) {
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(CatalogApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + name + "-" + rows + ";DB_CLOSE_DELAY=-1",
+                        "app.nbu.url=http://localhost:9/unavailable",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+        RateService rateService = ctx.getBean(RateService.class);
+        rateService.updateRate(new BigDecimal("40.00"));
+        seed(ctx.getBean(BookJdbcRepository.class), rows);
+        return ctx;
+    }
+
+    static String isbn(long n) {
+        return String.format("978%010d", n);
+    }
+
+    private static void seed(BookJdbcRepository repository, int rows) {
+        List<Book> chunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < rows; i++) {
+            BigDecimal uah = BigDecimal.valueOf(10_000 + (i % 90_000), 2);
+            chunk.add(new Book(null, isbn(i), "Title " + i, "Author " + (i % 5_000), 1900 + (i % 125),
+                    new Price(uah, null)));
+            if (chunk.size() == SEED_CHUNK) {
+                repository.insertAll(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) repository.insertAll(chunk);
+    }
+}
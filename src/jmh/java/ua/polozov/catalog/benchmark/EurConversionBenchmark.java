@@ -0,0 +1,54 @@
+package ua.polozov.catalog.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import ua.polozov.catalog.service.RateSnapshot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UAH to EUR conversion of 1024 prices: plain {@link BigDecimal#divide} versus the
+ * scaled-long path in {@link RateSnapshot#toEur}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EurConversionBenchmark {
+
+    private final BigDecimal rate = new BigDecimal("41.23");
+    private final RateSnapshot snapshot = new RateSnapshot(1L, rate, LocalDateTime.now());
+    private BigDecimal[] prices;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        prices = new BigDecimal[1024];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimalDivide(Blackhole bh) {
+        for (BigDecimal uah : prices) {
+            bh.consume(uah.divide(rate, 2, RoundingMode.HALF_UP));
+        }
+    }
+
+    @Benchmark
+    public void snapshotToEur(Blackhole bh) {
+        for (BigDecimal uah : prices) {
+            bh.consume(snapshot.toEur(uah));
+        }
+    }
+}
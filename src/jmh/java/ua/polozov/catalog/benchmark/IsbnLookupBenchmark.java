@@ -0,0 +1,59 @@
+package ua.polozov.catalog.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Active-ISBN check of the bulk import ({@code findActiveIsbns}), with and without the
+ * unique {@code ACTIVE_ISBN} index. Creates and updates run no lookup; they rely on that index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IsbnLookupBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private ConfigurableApplicationContext ctx;
+    private BookJdbcRepository bookJdbcRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ctx = CatalogBenchmarkContext.start("isbn-lookup-" + indexed, rows);
+        bookJdbcRepository = ctx.getBean(BookJdbcRepository.class);
+        if (!indexed) {
+            ctx.getBean(JdbcTemplate.class).execute("DROP INDEX IF EXISTS \"UX_BOOKS_ACTIVE_ISBN\"");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public Set<String> findActiveIsbn() {
+        return bookJdbcRepository.findActiveIsbns(
+                List.of(CatalogBenchmarkContext.isbn(ThreadLocalRandom.current().nextLong(rows))));
+    }
+}
@@ -0,0 +1,78 @@
+package ua.polozov.catalog.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ua.polozov.catalog.dto.ProblemResponse;
+import ua.polozov.catalog.service.BookNotFoundException;
+import ua.polozov.catalog.web.ApiExceptionHandler;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A 404 for a missing book, from throw to JSON bytes: the previous handler (exception with a
+ * stack trace, {@code HashMap} body, {@code URI.create} per response) against the current
+ * one (stackless {@link BookNotFoundException}, preallocated {@link ProblemResponse}).
+ * Exceptions are thrown {@code depth} frames down to approximate a request thread's stack.
+ * Compare allocation with the GC profiler:
+ * {@code gradlew jmh -Pjmh.includes=ProblemResponse -Pjmh.profilers=gc} ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProblemResponseBenchmark {
+
+    @Param({"20", "120"})
+    public int depth;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // no warnings are written: the limit is zero, so only the suppressed counter moves
+    private final ApiExceptionHandler handler = new ApiExceptionHandler(new SimpleMeterRegistry(), 0);
+
+    @Benchmark
+    public byte[] mapBasedWithStackTrace() throws JsonProcessingException {
+        try {
+            throwAt(depth, true);
+            return null;
+        } catch (NoSuchElementException ex) {
+            Map<String, Object> problem = new HashMap<>();
+            problem.put("type", URI.create("about:blank"));
+            problem.put("title", "Not Found");
+            problem.put("status", 404);
+            problem.put("detail", ex.getMessage() != null ? ex.getMessage() : "Resource not found");
+            ResponseEntity<Map<String, Object>> response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(problem);
+            return objectMapper.writeValueAsBytes(response.getBody());
+        }
+    }
+
+    @Benchmark
+    public byte[] preallocatedStackless() throws JsonProcessingException {
+        try {
+            throwAt(depth, false);
+            return null;
+        } catch (BookNotFoundException ex) {
+            return objectMapper.writeValueAsBytes(handler.handleBookNotFound(ex).getBody());
+        }
+    }
+
+    private static void throwAt(int depth, boolean legacy) {
+        if (depth > 0) {
+            throwAt(depth - 1, legacy);
+            return;
+        }
+        throw legacy ? new NoSuchElementException("Book not found") : new BookNotFoundException();
+    }
+}
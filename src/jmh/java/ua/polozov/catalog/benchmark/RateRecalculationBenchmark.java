@@ -0,0 +1,56 @@
+package ua.polozov.catalog.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ua.polozov.catalog.service.RateService;
+import ua.polozov.catalog.service.RecalculationResult;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a full EUR recalculation after a rate change. Each invocation alternates the
+ * rate so every active row is rewritten.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class RateRecalculationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext ctx;
+    private RateService rateService;
+    private boolean flip;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ctx = CatalogBenchmarkContext.start("rate-recalculation", rows);
+        rateService = ctx.getBean(RateService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public RecalculationResult updateRate() {
+        flip = !flip;
+        return rateService.updateRate(flip ? new BigDecimal("41.25") : new BigDecimal("40.00"));
+    }
+}
@@ -0,0 +1,141 @@
+package ua.polozov.catalog.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Closed-loop load generator for the books endpoints of a running instance. Each client is
+ * a virtual thread issuing requests back to back, so thousands of clients are cheap on the
+ * driver side. Run it against the server started with and without
+ * {@code spring.threads.virtual.enabled=true} to compare throughput.
+ * <p>
+ * Usage: {@code gradlew loadTest -PbaseUrl=http://localhost:8080 -Pclients=1000 -Pseconds=30}
+ */
+public final class BooksLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long maxId = seed(http, baseUrl);
+
+        AtomicLong ok = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        // one histogram for all clients: its size does not grow with the client count
+        LatencyHistogram latencies = new LatencyHistogram();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        String path = random.nextInt(4) == 0
+                                ? "/api/v1/books?size=20&page=" + random.nextInt(50)
+                                : "/api/v1/books/" + random.nextLong(1, maxId + 1);
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> resp = http.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (resp.statusCode() < 500) ok.incrementAndGet(); else failed.incrementAndGet();
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                        latencies.record(System.nanoTime() - started);
+                    }
+                    return null;
+                });
+            }
+        }
+
+        System.out.printf("clients=%d duration=%ds requests=%d failed=%d throughput=%.1f req/s%n",
+                clients, seconds, ok.get(), failed.get(), ok.get() / (double) seconds);
+        if (latencies.count() > 0) {
+            System.out.printf("latency p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    latencies.percentile(0.50) / 1e6, latencies.percentile(0.99) / 1e6, latencies.max() / 1e6);
+        }
+    }
+
+    // creates a small working set so GET by id mostly hits existing books
+    private static long seed(HttpClient http, String baseUrl) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            body.append("{\"isbn\":\"").append(String.format("979%010d", i))
+                    .append("\",\"title\":\"Load ").append(i).append("\",\"price\":{\"uah\":100.00}}\n");
+        }
+        http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/books/batch"))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        String count = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/books?size=1")).build(),
+                HttpResponse.BodyHandlers.discarding()).headers().firstValue("X-Total-Count").orElse("1000");
+        return Math.max(1, Long.parseLong(count));
+    }
+
+    /**
+     * Log-linear latency histogram shared by all clients: 16 buckets per power of two, so a
+     * percentile is off by at most 1/16 of its value. Fixed size regardless of client count
+     * or run length; recording is one atomic increment.
+     */
+    static final class LatencyHistogram {
+
+        private static final int SUB_BUCKETS = 16;
+        private static final int SUB_BUCKET_BITS = 4;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(1024);
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(1, nanos);
+            buckets.incrementAndGet(index(value));
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) count += buckets.get(i);
+            return count;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // lower bound of the bucket holding the given quantile
+        long percentile(double quantile) {
+            long rank = (long) Math.ceil(quantile * count());
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) return lowerBound(i);
+            }
+            return max();
+        }
+
+        static int index(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+        }
+
+        static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ua.polozov.catalog.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal consecutive-failure circuit breaker. After {@code failureThreshold} failed calls
+ * in a row the circuit opens and calls are rejected for {@code openDuration}; then a single
+ * trial call is let through, closing the circuit on success or reopening it on failure.
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private volatile long openedAt;
+    private volatile boolean open;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    public boolean allowRequest() {
+        if (!open) return true;
+        if (System.nanoTime() - openedAt < openNanos) return false;
+        // half-open: exactly one caller gets to probe the remote side
+        return trialInFlight.compareAndSet(false, true);
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        open = false;
+        trialInFlight.set(false);
+    }
+
+    public void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold || open) {
+            openedAt = System.nanoTime();
+            open = true;
+        }
+        trialInFlight.set(false);
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+}
@@ -0,0 +1,16 @@
+package ua.polozov.catalog.client;
+
+/**
+ * Raised when the NBU API cannot deliver a rate: the call failed after all retries,
+ * returned no usable data, or was short-circuited by an open circuit breaker.
+ */
+public class NbuClientException extends RuntimeException {
+
+    public NbuClientException(String message) {
+        super(message);
+    }
+
+    public NbuClientException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
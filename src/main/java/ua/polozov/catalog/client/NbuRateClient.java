@@ -0,0 +1,126 @@
+package ua.polozov.catalog.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Client for the NBU exchange rate API. Calls are bounded by the connect/read timeouts of
+ * the underlying {@link RestTemplate} (see {@code WebConfig}), retried with exponential
+ * backoff on transient errors, and guarded by a {@link CircuitBreaker} so a dead endpoint
+ * is not hammered by every caller.
+ */
+@Component
+public class NbuRateClient {
+
+    private static final Logger log = LoggerFactory.getLogger(NbuRateClient.class);
+
+    private final RestTemplate restTemplate;
+    private final String url;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    public NbuRateClient(RestTemplate restTemplate,
+                         @Value("${app.nbu.url}") String url,
+                         @Value("${app.nbu.retry.max-attempts:3}") int maxAttempts,
+                         @Value("${app.nbu.retry.backoff-ms:500}") long backoffMillis,
+                         @Value("${app.nbu.circuit.failure-threshold:3}") int failureThreshold,
+                         @Value("${app.nbu.circuit.open-ms:60000}") long openMillis) {
+        this.restTemplate = restTemplate;
+        this.url = url;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, Duration.ofMillis(openMillis));
+    }
+
+    /**
+     * Fetches the rates of all currencies published by NBU in a single request.
+     *
+     * @return UAH per one unit of currency keyed by upper-case ISO code, as published
+     * @throws NbuClientException if no rate could be obtained
+     */
+    public Map<String, BigDecimal> fetchRates() {
+        if (!circuitBreaker.allowRequest()) {
+            throw new NbuClientException("NBU circuit breaker is open");
+        }
+        Map<String, BigDecimal> rates = null;
+        try {
+            rates = requestWithRetries();
+            return rates;
+        } finally {
+            // recorded on every way out, so a half-open trial can never stay in flight
+            if (rates != null) circuitBreaker.recordSuccess(); else circuitBreaker.recordFailure();
+        }
+    }
+
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    private Map<String, BigDecimal> requestWithRetries() {
+        RuntimeException last = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                return requestRates();
+            } catch (HttpClientErrorException e) {
+                // 4xx will not get better on retry
+                last = e;
+                break;
+            } catch (RestClientException | NbuClientException e) {
+                last = e;
+                log.warn("NBU request attempt {}/{} failed: {}", attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) sleep(backoff(attempt));
+            } catch (RuntimeException e) {
+                // anything else (e.g. an unexpected body) is not transient either
+                last = e;
+                break;
+            }
+        }
+        throw last instanceof NbuClientException nbu ? nbu : new NbuClientException("NBU request failed", last);
+    }
+
+    private Map<String, BigDecimal> requestRates() {
+        ResponseEntity<NbuRateDto[]> resp = restTemplate.getForEntity(url, NbuRateDto[].class);
+        NbuRateDto[] body = resp.getBody();
+        Map<String, BigDecimal> rates = new HashMap<>();
+        if (body != null) {
+            for (NbuRateDto dto : body) {
+                if (dto.rate() != null && dto.cc() != null && dto.rate().signum() > 0) {
+                    rates.put(dto.cc().toUpperCase(Locale.ROOT), dto.rate());
+                }
+            }
+        }
+        if (rates.isEmpty()) {
+            throw new NbuClientException("NBU response contains no rates");
+        }
+        return rates;
+    }
+
+    // exponential backoff with +/-20% jitter
+    private long backoff(int attempt) {
+        long base = backoffMillis << (attempt - 1);
+        return base + ThreadLocalRandom.current().nextLong(-base / 5, base / 5 + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NbuClientException("Interrupted while waiting to retry NBU request", e);
+        }
+    }
+}
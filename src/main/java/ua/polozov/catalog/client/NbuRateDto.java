@@ -0,0 +1,13 @@
+package ua.polozov.catalog.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.math.BigDecimal;
+
+/**
+ * One entry of the NBU exchange feed, e.g.
+ * {@code {"r030":978,"txt":"Євро","rate":44.1234,"cc":"EUR","exchangedate":"17.10.2026"}}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record NbuRateDto(Integer r030, String txt, BigDecimal rate, String cc, String exchangedate) {
+}
@@ -0,0 +1,44 @@
+package ua.polozov.catalog.config;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback {@link AsyncAppender} that counts the events it does not deliver: low-level events
+ * discarded once the queue is above its discarding threshold, and any event dropped because
+ * the queue was full ({@code neverBlock}). The counts are exported by {@link MetricsConfig}
+ * as {@code catalog.log.events.dropped}; they are process-wide because Logback creates the
+ * appender before, and independently of, the Spring context.
+ * <p>
+ * The full-queue check runs just before the offer, so under contention the count is approximate.
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+
+    private static final LongAdder DISCARDED = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int remaining = getRemainingCapacity();
+        if (remaining < getDiscardingThreshold() && isDiscardable(event)) {
+            DISCARDED.increment();
+            return;
+        }
+        if (remaining == 0 && isNeverBlock()) {
+            DROPPED.increment();
+        }
+        super.append(event);
+    }
+
+    /** Events at INFO and below discarded because the queue was nearly full. */
+    public static long discardedEvents() {
+        return DISCARDED.sum();
+    }
+
+    /** Events of any level dropped because the queue was full. */
+    public static long droppedEvents() {
+        return DROPPED.sum();
+    }
+}
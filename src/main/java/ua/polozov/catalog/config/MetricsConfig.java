@@ -0,0 +1,34 @@
+package ua.polozov.catalog.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ua.polozov.catalog.service.RateService;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder rateSnapshotMetrics(RateService rateService) {
+        return registry -> Gauge.builder("catalog.rate.snapshot.age", rateService, RateService::snapshotAgeSeconds)
+                .description("Age of the in-memory exchange rate snapshot")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder asyncLogMetrics() {
+        return registry -> {
+            FunctionCounter.builder("catalog.log.events.dropped", CountingAsyncAppender.class, c -> CountingAsyncAppender.discardedEvents())
+                    .description("Log events not written by the async appender")
+                    .tag("reason", "discarded")
+                    .register(registry);
+            FunctionCounter.builder("catalog.log.events.dropped", CountingAsyncAppender.class, c -> CountingAsyncAppender.droppedEvents())
+                    .description("Log events not written by the async appender")
+                    .tag("reason", "queue-full")
+                    .register(registry);
+        };
+    }
+}
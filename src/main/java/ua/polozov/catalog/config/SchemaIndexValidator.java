@@ -0,0 +1,62 @@
+package ua.polozov.catalog.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fails startup when an index the hot query paths rely on is missing from the schema,
+ * instead of silently degrading to full table scans.
+ */
+@Component
+public class SchemaIndexValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaIndexValidator.class);
+
+    static final Map<String, List<String>> REQUIRED_INDEXES = Map.of(
+            "books", List.of("UX_BOOKS_ACTIVE_ISBN", "IDX_BOOKS_DELETED_TITLE",
+                    "IDX_BOOKS_DELETED_AUTHOR", "IDX_BOOKS_DELETED_YEAR", "IDX_BOOKS_UPDATED_AT"),
+            "rates", List.of("IDX_RATES_DATE"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public SchemaIndexValidator(JdbcTemplate jdbcTemplate, @Value("${app.schema.validate-indexes:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void validate() {
+        if (!enabled) return;
+        REQUIRED_INDEXES.forEach((table, required) -> {
+            Set<String> existing = jdbcTemplate.execute((ConnectionCallback<Set<String>>) con -> {
+                Set<String> names = new HashSet<>();
+                DatabaseMetaData meta = con.getMetaData();
+                try (ResultSet rs = meta.getIndexInfo(con.getCatalog(), null, table, false, true)) {
+                    while (rs.next()) {
+                        String name = rs.getString("INDEX_NAME");
+                        if (name != null) names.add(name);
+                    }
+                }
+                return names;
+            });
+            List<String> missing = required.stream().filter(name -> !existing.contains(name)).toList();
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException("Missing indexes on table " + table + ": " + missing);
+            }
+        });
+        log.info("Schema index validation passed");
+    }
+}
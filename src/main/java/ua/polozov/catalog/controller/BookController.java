@@ -1,5 +1,7 @@
 package ua.polozov.catalog.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -7,24 +9,63 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ETag;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+import ua.polozov.catalog.dto.BatchImportResponse;
 import ua.polozov.catalog.dto.BookRequest;
 import ua.polozov.catalog.dto.BookResponse;
 import ua.polozov.catalog.dto.PriceDto;
+import ua.polozov.catalog.repository.BookCursor;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+import ua.polozov.catalog.repository.BookStamp;
+import ua.polozov.catalog.service.BookExportService;
+import ua.polozov.catalog.service.BookImportService;
+import ua.polozov.catalog.service.BookNotFoundException;
+import ua.polozov.catalog.service.BookCache;
 import ua.polozov.catalog.service.BookService;
-import ua.polozov.catalog.repository.BookRepository;
+import ua.polozov.catalog.service.CachedBook;
+import ua.polozov.catalog.service.CurrencyRates;
+import ua.polozov.catalog.service.RateService;
+import ua.polozov.catalog.service.RateSnapshot;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @RestController
@@ -32,12 +73,44 @@ import java.util.stream.Collectors;
 @Tag(name = "Books", description = "Operations for managing books in the catalog")
 public class BookController {
 
+    // served by Jackson's Smile converter; Spring has no MediaType constant for it
+    static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    // representations of a book, in the order Spring MVC's message converters offer them
+    private static final List<MediaType> BOOK_MEDIA_TYPES = List.of(
+            MediaType.APPLICATION_JSON, MediaType.parseMediaType(APPLICATION_SMILE), MediaType.APPLICATION_CBOR);
+
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final BookService bookService;
-    private final BookRepository bookRepository;
+    private final BookExportService bookExportService;
+    private final BookImportService bookImportService;
+    private final RateService rateService;
+    private final BookCache bookCache;
+    private final ObjectMapper objectMapper;
+    private final ContentNegotiationManager contentNegotiationManager;
+    private final boolean computedEur;
+    // JSON reads written from serialized bytes held in BookCache instead of re-rendering each book
+    private final boolean serializedCache;
+    private final Duration exportTimeout;
 
-    public BookController(BookService bookService, BookRepository bookRepository) {
+    public BookController(BookService bookService, BookExportService bookExportService, BookImportService bookImportService,
+                          RateService rateService, BookCache bookCache, ObjectMapper objectMapper,
+                          ContentNegotiationManager contentNegotiationManager,
+                          @Value("${app.pricing.computed-eur:false}") boolean computedEur,
+                          @Value("${app.cache.books.serialized:false}") boolean serializedCache,
+                          @Value("${app.export.timeout:30m}") Duration exportTimeout) {
         this.bookService = bookService;
-        this.bookRepository = bookRepository;
+        this.bookExportService = bookExportService;
+        this.bookImportService = bookImportService;
+        this.rateService = rateService;
+        this.bookCache = bookCache;
+        this.objectMapper = objectMapper;
+        this.contentNegotiationManager = contentNegotiationManager;
+        this.computedEur = computedEur;
+        this.serializedCache = serializedCache;
+        this.exportTimeout = exportTimeout;
     }
 
     @Operation(summary = "Create a new book", description = "Creates a new book and returns 201 with Location header pointing to the created resource")
@@ -53,56 +126,325 @@ public class BookController {
         return ResponseEntity.created(location).build();
     }
 
-    @Operation(summary = "List all books", description = "Returns paginated list of books with sorting support")
+    @Operation(summary = "Import books in bulk", description = "Accepts a JSON array or NDJSON stream of book requests. " +
+            "Rows are validated individually, ISBNs are deduplicated against active books, and valid rows are inserted " +
+            "in JDBC batches. Returns a per-row report; if the body turns malformed, the rows before that point are " +
+            "imported and the report ends with an INVALID row where parsing stopped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Import finished, see per-row results",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchImportResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Body could not be read", content = @Content)
+    })
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BatchImportResponse> importBatch(InputStream body) {
+        try {
+            return ResponseEntity.ok(bookImportService.importBooks(body));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read batch body: " + e.getMessage());
+        }
+    }
+
+    @Operation(summary = "List all books", description = "Returns paginated list of books with sorting support. " +
+            "Besides JSON, CBOR and Smile are served on request (Accept). " +
+            "Every page carries an X-Next-Cursor header; passing it back as 'after' continues with keyset (seek) " +
+            "pagination, which costs the same on any depth and skips the total count unless count=true.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of books",
-                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class)))
+                    content = {
+                            @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class)),
+                            @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, schema = @Schema(implementation = BookResponse.class)),
+                            @Content(mediaType = APPLICATION_SMILE, schema = @Schema(implementation = BookResponse.class))
+                    }),
+            @ApiResponse(responseCode = "400", description = "Malformed cursor", content = @Content)
     })
     @GetMapping
-    public ResponseEntity<List<BookResponse>> list(
+    public ResponseEntity<?> list(
             @Parameter(description = "Page number (zero-based)", example = "0") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size", example = "20") @RequestParam(defaultValue = "20") int size,
-            @Parameter(description = "Sort parameters (field,direction)", example = "title,asc") @RequestParam(defaultValue = "id,asc") String[] sort) {
-        Sort sorting = Sort.by(Sort.Order.by("id"));
+            @Parameter(description = "Sort parameters (field,direction)", example = "title,asc") @RequestParam(defaultValue = "id,asc") String[] sort,
+            @Parameter(description = "Cursor from X-Next-Cursor; switches to keyset pagination (page and sort are ignored)") @RequestParam(required = false) String after,
+            @Parameter(description = "Include X-Total-Count in keyset mode") @RequestParam(defaultValue = "false") boolean count,
+            @Parameter(description = "Extra price currencies (ISO codes)", example = "USD,PLN") @RequestParam(required = false) List<String> currencies,
+            WebRequest request) {
+        requirePageBounds(page, size);
+        RateSnapshot rate = rateService.currentSnapshot();
+        if (after != null) {
+            return listAfter(decodeCursor(after), size, count, currencies, rate, request);
+        }
+        Sort.Order order = Sort.Order.by("id");
         // parse sort param: e.g. sort=title,asc
         if (sort.length >= 2) {
-            sorting = Sort.by(Sort.Order.by(sort[0]).with(Sort.Direction.fromString(sort[1])));
+            order = Sort.Order.by(sort[0]).with(Sort.Direction.fromString(sort[1]));
+        }
+        // id breaks ties between equal sort keys, so offset pages and X-Next-Cursor agree on the order
+        Sort orderBy = "id".equals(order.getProperty()) ? Sort.by(order) : Sort.by(order, Sort.Order.by("id").with(order.getDirection()));
+        Pageable pageable = PageRequest.of(page, size, orderBy);
+        Page<Book> p = bookService.findAll(pageable);
+        if (request.checkNotModified(pageEtag(p.getContent(), p.getTotalElements(), p.hasNext(), rate, currencies) + formatTag(request))) {
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count", String.valueOf(p.getTotalElements()));
+        if (p.hasNext() && BookJdbcRepository.isSortable(order.getProperty())) {
+            Book last = p.getContent().get(p.getNumberOfElements() - 1);
+            headers.add("X-Next-Cursor", BookCursor.after(last, order.getProperty(), order.getDirection()).encode());
         }
-        Pageable pageable = PageRequest.of(page, size, sorting);
-        Page<Book> p = bookRepository.findAllByDeletedFalse(pageable);
+        return page(p.getContent(), headers, rate, currencies, request);
+    }
+
+    private ResponseEntity<?> listAfter(BookCursor cursor, int size, boolean count, List<String> currencies,
+                                        RateSnapshot rate, WebRequest request) {
+        // fetch one extra row to learn whether another page follows
+        List<Book> books = bookService.findAfter(cursor.property(), cursor.direction(), cursor, size + 1);
+        boolean hasNext = books.size() > size;
+        if (hasNext) books = books.subList(0, size);
+        long total = count ? bookService.countActive() : -1;
+        if (request.checkNotModified(pageEtag(books, total, hasNext, rate, currencies) + formatTag(request))) {
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (count) headers.add("X-Total-Count", String.valueOf(total));
+        if (hasNext) {
+            Book last = books.get(books.size() - 1);
+            headers.add("X-Next-Cursor", BookCursor.after(last, cursor.property(), cursor.direction()).encode());
+        }
+        return page(books, headers, rate, currencies, request);
+    }
+
+    private ResponseEntity<?> page(List<Book> books, HttpHeaders headers, RateSnapshot rate, List<String> currencies,
+                                   WebRequest request) {
+        if (servesSerialized(currencies, request)) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            return new ResponseEntity<>(jsonPage(books, versionOf(rate)), headers, HttpStatus.OK);
+        }
+        List<BookResponse> resp = books.stream().map(b -> toResponse(b, null, currencies)).collect(Collectors.toList());
+        return new ResponseEntity<>(resp, headers, HttpStatus.OK);
+    }
+
+    // a JSON array concatenated from the books' cached fragments; rows already read are rendered on a miss
+    private byte[] jsonPage(List<Book> books, long rateVersion) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + books.size() * 256);
+        out.write('[');
+        for (int i = 0; i < books.size(); i++) {
+            Book b = books.get(i);
+            if (i > 0) out.write(',');
+            out.writeBytes(bookCache.get(b.getId(), versionOf(b), rateVersion, () -> render(b, rateVersion)).json());
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    // checked here: PageRequest would reject them with IllegalArgumentException (409) and a
+    // keyset page of size 0 has no last row to build the next cursor from
+    private static void requirePageBounds(int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "page must not be negative and size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static BookCursor decodeCursor(String token) {
+        try {
+            return BookCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor");
+        }
+    }
+
+    @Operation(summary = "Search books", description = "Full-text search over title and author. Every query term must match; " +
+            "books matching in the title rank above those matching in the author. Served from an in-memory index.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Ranked page of matching books",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Empty query or page/size out of range", content = @Content)
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<BookResponse>> search(
+            @Parameter(description = "Search terms", example = "thinking java") @RequestParam String q,
+            @Parameter(description = "Page number (zero-based)", example = "0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size", example = "20") @RequestParam(defaultValue = "20") int size) {
+        if (q.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query must not be empty");
+        }
+        requirePageBounds(page, size);
+        Page<Book> p = bookService.search(q, PageRequest.of(page, size));
         List<BookResponse> resp = p.getContent().stream().map(this::toResponse).collect(Collectors.toList());
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-Total-Count", String.valueOf(p.getTotalElements()));
         return new ResponseEntity<>(resp, headers, HttpStatus.OK);
     }
 
+    @Operation(summary = "Export all books", description = "Streams every non-deleted book as NDJSON (default) or CSV. " +
+            "Rows are read through a JDBC cursor, so memory use does not grow with catalog size.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Catalog export stream"),
+            @ApiResponse(responseCode = "400", description = "Unsupported format", content = @Content)
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(description = "Export format: ndjson or csv", example = "ndjson") @RequestParam(defaultValue = "ndjson") String format,
+            WebRequest request) {
+        extendAsyncTimeout(request, exportTimeout);
+        if ("csv".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = bookExportService::writeCsv;
+            return ResponseEntity.ok()
+                    .contentType(TEXT_CSV)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.csv\"")
+                    .body(body);
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = bookExportService::writeNdjson;
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(body);
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+    }
+
+    // A StreamingResponseBody runs under the default async request timeout. The export alone
+    // gets a longer one: the interceptor sets it on this request just before async processing starts.
+    private static void extendAsyncTimeout(WebRequest request, Duration timeout) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(BookController.class.getName() + ".timeout",
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                        if (asyncRequest instanceof AsyncWebRequest async) async.setTimeout(timeout.toMillis());
+                    }
+                });
+    }
+
     @Operation(summary = "Get book by ID", description = "Returns a single book by its unique identifier")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Book found",
-                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class))),
-            @ApiResponse(responseCode = "404", description = "Book not found", content = @Content)
+                    content = {
+                            @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class)),
+                            @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, schema = @Schema(implementation = BookResponse.class)),
+                            @Content(mediaType = APPLICATION_SMILE, schema = @Schema(implementation = BookResponse.class))
+                    }),
+            @ApiResponse(responseCode = "404", description = "Book not found, or no exchange rate at asOf", content = @Content)
     })
     @GetMapping("/{id}")
-    public ResponseEntity<BookResponse> get(@Parameter(description = "Book ID") @PathVariable Long id) {
-        Book book = bookService.findById(id).orElseThrow(() -> new java.util.NoSuchElementException("Book not found"));
-        return ResponseEntity.ok(toResponse(book));
+    public ResponseEntity<?> get(
+            @Parameter(description = "Book ID") @PathVariable Long id,
+            @Parameter(description = "Price the book with the exchange rate in effect at this moment", example = "2024-01-15T12:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+            @Parameter(description = "Extra price currencies (ISO codes)", example = "USD,PLN") @RequestParam(required = false) List<String> currencies,
+            WebRequest request) {
+        // resolved before the book so the ETag never claims a newer rate than the body was priced with
+        RateSnapshot rate = asOf != null ? rateService.rateAt(asOf) : rateService.currentSnapshot();
+        if (asOf == null && (currencies == null || currencies.isEmpty())) {
+            return getCached(id, rate, request);
+        }
+        boolean conditional = isConditional(request);
+        if (conditional) {
+            // revalidation reads only the version stamp, not the row; also sets ETag/Last-Modified
+            BookStamp stamp = bookService.findStamp(id).orElseThrow(BookNotFoundException::new);
+            requireRate(rate, asOf);
+            if (request.checkNotModified(etag(id, stamp.version(), versionOf(rate), currencies) + formatTag(request), lastModified(stamp.updatedAt(), rate))) {
+                return null;
+            }
+        }
+        Book book = bookService.findById(id).orElseThrow(BookNotFoundException::new);
+        requireRate(rate, asOf);
+        if (!conditional) {
+            // without conditional headers this only sets ETag and Last-Modified
+            long version = book.getVersion() != null ? book.getVersion() : 0;
+            request.checkNotModified(etag(id, version, versionOf(rate), currencies) + formatTag(request), lastModified(book.getUpdatedAt(), rate));
+        }
+        return ResponseEntity.ok(toResponse(book, asOf != null ? rate : null, currencies));
+    }
+
+    // plain reads of the current representation are served from BookCache, including revalidation
+    private ResponseEntity<?> getCached(Long id, RateSnapshot rate, WebRequest request) {
+        long rateVersion = versionOf(rate);
+        CachedBook cached = bookCache.get(id, rateVersion, () -> bookService.findById(id)
+                .map(b -> render(b, rateVersion))
+                .orElse(null));
+        if (cached == null) {
+            throw new BookNotFoundException();
+        }
+        if (request.checkNotModified(etag(id, cached.version(), cached.rateVersion(), null) + formatTag(request), lastModified(cached.updatedAt(), rate))) {
+            return null;
+        }
+        if (cached.json() != null && servesSerialized(null, request)) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(cached.json());
+        }
+        return ResponseEntity.ok(cached.response());
+    }
+
+    private CachedBook render(Book b, long rateVersion) {
+        BookResponse response = toResponse(b);
+        byte[] json = null;
+        if (serializedCache) {
+            try {
+                json = objectMapper.writeValueAsBytes(response);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize book " + b.getId(), e);
+            }
+        }
+        return new CachedBook(response, json, versionOf(b), b.getUpdatedAt(), rateVersion);
+    }
+
+    // cached bytes are plain JSON of the current price: no extra currencies, no CBOR/Smile client
+    private boolean servesSerialized(List<String> currencies, WebRequest request) {
+        if (!serializedCache || (currencies != null && !currencies.isEmpty())) return false;
+        MediaType type = negotiated(request);
+        return type != null && MediaType.APPLICATION_JSON.equalsTypeAndSubtype(type);
+    }
+
+    private static void requireRate(RateSnapshot rate, LocalDateTime asOf) {
+        if (asOf != null && rate == null) {
+            throw new NoSuchElementException("No exchange rate as of " + asOf);
+        }
     }
 
-    @Operation(summary = "Update book", description = "Partially updates a book by ID (PATCH-like behavior). Only provided fields are updated.")
+    @Operation(summary = "Update book", description = "Partially updates a book by ID (PATCH-like behavior). Only provided fields are updated. " +
+            "With If-Match the update applies only if the book still has the version of one of the listed strong ETags.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Book updated successfully",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class))),
             @ApiResponse(responseCode = "404", description = "Book not found", content = @Content),
-            @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content)
+            @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Book was modified concurrently", content = @Content),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current version", content = @Content)
     })
     @PutMapping("/{id}")
     public ResponseEntity<BookResponse> update(
             @Parameter(description = "Book ID") @PathVariable Long id,
-            @Validated @RequestBody BookRequest req) {
-        // Let BookService throw NoSuchElementException if book not found;
+            @Parameter(description = "ETag(s) from a previous GET, or *") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Validated @RequestBody BookRequest req,
+            WebRequest request) {
+        Long expectedVersion = null;
+        if (ifMatch != null && !ifMatch.trim().equals("*")) {
+            BookStamp stamp = bookService.findStamp(id).orElseThrow(BookNotFoundException::new);
+            // If-Match uses strong comparison: weak tags never match, any tag of the list may
+            boolean matches = ETag.parse(ifMatch).stream()
+                    .anyMatch(tag -> !tag.weak() && Long.valueOf(stamp.version()).equals(versionFromEtag(id, tag.tag())));
+            if (!matches) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Book has changed since the given ETag");
+            }
+            expectedVersion = stamp.version();
+        }
+        // Let BookService throw BookNotFoundException if book not found;
         // ApiExceptionHandler will convert it to Problem Details 404.
-        Book updated = bookService.updatePartial(id, req);
-        return ResponseEntity.ok(toResponse(updated));
+        // A concurrent update between the check above and the write ends in 409.
+        Book updated = bookService.updatePartial(id, req, expectedVersion);
+        // priced while saving, so the rate version comes from the saved book, not an earlier snapshot
+        long rateVersion = updated.getRateVersion() != null ? updated.getRateVersion() : 0;
+        return ResponseEntity.ok()
+                .eTag(etag(id, versionOf(updated), rateVersion, null) + formatTag(request))
+                .body(toResponse(updated));
+    }
+
+    // row version from the unquoted value of an ETag of this book ("id.version.rate..."); null if it is not one
+    private static Long versionFromEtag(long id, String tag) {
+        String[] parts = tag.split("\\.");
+        if (parts.length < 2 || !parts[0].equals(String.valueOf(id))) return null;
+        try {
+            return Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     @Operation(summary = "Delete book", description = "Soft deletes a book by ID (marks as deleted)")
@@ -112,15 +454,125 @@ public class BookController {
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@Parameter(description = "Book ID") @PathVariable Long id) {
-        // Let BookService throw NoSuchElementException if book not found;
+        // Let BookService throw BookNotFoundException if book not found;
         // ApiExceptionHandler will convert it to Problem Details 404.
         bookService.softDelete(id);
         return ResponseEntity.noContent().build();
     }
 
+    private static boolean isConditional(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    // strong ETag of a single book: row version plus whatever the rendered prices depend on
+    private String etag(long id, long version, long rateVersion, List<String> currencies) {
+        return id + "." + version + "." + priceTag(rateVersion, currencies);
+    }
+
+    // the same version in CBOR or Smile is a different representation, so it gets its own ETag
+    // (responses also carry Vary: Accept, see WebConfig); JSON keeps the plain tag
+    private String formatTag(WebRequest request) {
+        MediaType type = negotiated(request);
+        if (type == null || MediaType.APPLICATION_JSON.equalsTypeAndSubtype(type)) return "";
+        return MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(type) ? ".cbor" : ".smile";
+    }
+
+    /**
+     * The book representation the response will be written in: the choice Spring MVC's message
+     * converters make for the {@code Accept} header, honouring quality values. {@code null} if
+     * none is acceptable (the response then fails with 406).
+     */
+    private MediaType negotiated(WebRequest request) {
+        List<MediaType> acceptable;
+        try {
+            acceptable = contentNegotiationManager.resolveMediaTypes((NativeWebRequest) request);
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            return null;
+        }
+        List<MediaType> compatible = new ArrayList<>();
+        for (MediaType accepted : acceptable) {
+            for (MediaType producible : BOOK_MEDIA_TYPES) {
+                if (accepted.isCompatibleWith(producible)) compatible.add(producible.copyQualityValue(accepted));
+            }
+        }
+        // quality first, then specificity; ties keep Accept order
+        MimeTypeUtils.sortBySpecificity(compatible);
+        for (MediaType type : compatible) {
+            if (type.getQualityValue() > 0) return type;
+        }
+        return null;
+    }
+
+    // hasNext is part of the page: it decides the X-Next-Cursor header, even when total is unknown (-1)
+    private String pageEtag(List<Book> books, long total, boolean hasNext, RateSnapshot rate, List<String> currencies) {
+        long hash = total;
+        for (Book b : books) {
+            hash = 31 * (31 * hash + b.getId()) + (b.getVersion() != null ? b.getVersion() : 0);
+        }
+        return "p" + Long.toHexString(hash) + "." + books.size() + (hasNext ? ".n." : ".") + priceTag(versionOf(rate), currencies);
+    }
+
+    // EUR follows the rate version; other currencies follow the NBU table fetch time
+    private String priceTag(long rateVersion, List<String> currencies) {
+        String tag = String.valueOf(rateVersion);
+        if (currencies != null && !currencies.isEmpty()) {
+            LocalDateTime fetched = rateService.currencyRates().date();
+            tag += "." + (fetched != null ? Long.toHexString(fetched.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()) : "0");
+        }
+        return tag;
+    }
+
+    private static long versionOf(RateSnapshot rate) {
+        return rate != null ? rate.version() : 0;
+    }
+
+    private static long versionOf(Book book) {
+        return book.getVersion() != null ? book.getVersion() : 0;
+    }
+
+    private static long lastModified(LocalDateTime updatedAt, RateSnapshot rate) {
+        LocalDateTime latest = updatedAt;
+        if (rate != null && rate.date() != null && (latest == null || rate.date().isAfter(latest))) {
+            latest = rate.date();
+        }
+        return latest != null ? latest.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
     private BookResponse toResponse(Book b) {
+        return toResponse(b, null, null);
+    }
+
+    // pricedAt != null: EUR from that (historical) rate instead of the current one
+    private BookResponse toResponse(Book b, RateSnapshot pricedAt, List<String> currencies) {
         PriceDto p = null;
-        if (b.getPrice() != null) p = new PriceDto(b.getPrice().getUah(), b.getPrice().getEur());
-        return new BookResponse(b.getId(), b.getIsbn(), b.getTitle(), b.getAuthor(), b.getPublicationYear(), p);
+        Map<String, BigDecimal> prices = null;
+        if (b.getPrice() != null) {
+            BigDecimal uah = b.getPrice().getUah();
+            BigDecimal eur = pricedAt != null && uah != null ? pricedAt.toEur(uah) : eurOf(b.getPrice());
+            p = new PriceDto(uah, eur);
+            prices = pricesIn(currencies, uah, eur);
+        }
+        return new BookResponse(b.getId(), b.getIsbn(), b.getTitle(), b.getAuthor(), b.getPublicationYear(), p, prices);
+    }
+
+    // converted on read from the NBU currency table; currencies NBU does not publish are left out
+    private Map<String, BigDecimal> pricesIn(List<String> currencies, BigDecimal uah, BigDecimal eur) {
+        if (currencies == null || currencies.isEmpty() || uah == null) return null;
+        CurrencyRates rates = rateService.currencyRates();
+        Map<String, BigDecimal> prices = new LinkedHashMap<>();
+        for (String currency : currencies) {
+            String code = currency.trim().toUpperCase(Locale.ROOT);
+            // EUR stays consistent with price.eur, which follows the versioned rate
+            BigDecimal amount = "EUR".equals(code) ? eur : rates.convert(uah, code);
+            if (amount != null) prices.put(code, amount);
+        }
+        return prices;
+    }
+
+    // in computed mode EUR is derived from the cached rate instead of the stored column
+    private BigDecimal eurOf(Price price) {
+        if (!computedEur || price.getUah() == null) return price.getEur();
+        RateSnapshot rate = rateService.currentSnapshot();
+        return rate != null ? rate.toEur(price.getUah()) : price.getEur();
     }
 }
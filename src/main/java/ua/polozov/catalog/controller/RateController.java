@@ -1,13 +1,21 @@
 package ua.polozov.catalog.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ua.polozov.catalog.service.CurrencyRates;
 import ua.polozov.catalog.service.RateService;
+import ua.polozov.catalog.service.RateSnapshot;
+import ua.polozov.catalog.service.RecalculationResult;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 @RestController
 @RequestMapping("/api/v1/rate")
@@ -20,14 +28,44 @@ public class RateController {
         this.rateService = rateService;
     }
 
-    @Operation(summary = "Get current exchange rate", description = "Returns the current EUR to UAH exchange rate")
+    @Operation(summary = "Get current exchange rate", description = "Returns the current EUR to UAH exchange rate, " +
+            "or the rate that was in effect at 'asOf'")
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getCurrentRate() {
-        BigDecimal rate = rateService.getCurrentRate();
-        if (rate == null) {
+    public ResponseEntity<Map<String, Object>> getCurrentRate(
+            @Parameter(description = "Moment to resolve the rate at", example = "2024-01-15T12:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        RateSnapshot current = asOf != null ? rateService.rateAt(asOf) : rateService.currentSnapshot();
+        if (current == null) {
             return ResponseEntity.ok(Map.of("message", "No rate available yet"));
         }
-        return ResponseEntity.ok(Map.of("rate", rate, "currency", "EUR/UAH"));
+        return ResponseEntity.ok(Map.of("rate", current.rate(), "currency", "EUR/UAH", "fallback", current.fallback(),
+                "date", current.date(), "version", current.version()));
+    }
+
+    @Operation(summary = "Get rate history", description = "Returns stored exchange rates in chronological order, " +
+            "optionally limited to the [from, to] interval")
+    @GetMapping("/history")
+    public ResponseEntity<List<Map<String, Object>>> getHistory(
+            @Parameter(description = "Start of the interval (inclusive)") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the interval (inclusive)") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        List<Map<String, Object>> body = rateService.history(from, to).stream()
+                .map(r -> Map.<String, Object>of("date", r.date(), "rate", r.rate(), "version", r.version(), "fallback", r.fallback()))
+                .toList();
+        return ResponseEntity.ok(body);
+    }
+
+    @Operation(summary = "Get rates of all currencies", description = "Returns UAH per unit of every currency from the latest NBU fetch")
+    @GetMapping("/currencies")
+    public ResponseEntity<Map<String, Object>> getCurrencyRates() {
+        CurrencyRates rates = rateService.currencyRates();
+        if (rates.isEmpty()) {
+            return ResponseEntity.ok(Map.of("message", "No currency rates available yet"));
+        }
+        Map<String, BigDecimal> byCurrency = new TreeMap<>();
+        rates.currencies().forEach(c -> byCurrency.put(c, rates.rate(c)));
+        return ResponseEntity.ok(Map.of("base", "UAH", "date", rates.date(), "rates", byCurrency));
     }
 
     @Operation(summary = "Fetch rate from NBU", description = "Manually fetches the current rate from NBU API (for testing)")
@@ -43,8 +81,9 @@ public class RateController {
     @Operation(summary = "Update rate manually", description = "Manually updates the exchange rate and recalculates book prices")
     @PostMapping("/update")
     public ResponseEntity<Map<String, Object>> updateRate(@RequestParam BigDecimal rate) {
-        rateService.updateRate(rate);
-        return ResponseEntity.ok(Map.of("message", "Rate updated successfully", "rate", rate));
+        RecalculationResult result = rateService.updateRate(rate);
+        return ResponseEntity.ok(Map.of("message", "Rate updated successfully", "rate", rate,
+                "booksRecalculated", result.booksRecalculated(), "elapsedMillis", result.elapsedMillis()));
     }
 }
 
@@ -1,9 +1,11 @@
 package ua.polozov.catalog.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Embedded;
 import org.springframework.data.relational.core.mapping.Table;
 
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Table("books")
@@ -20,8 +22,17 @@ public class Book {
     @Embedded.Nullable
     private Price price;
 
+    private Long rateVersion;
+
     private boolean deleted = false;
 
+    // optimistic lock: incremented by Spring Data on every save, and checked in the UPDATE;
+    // with updatedAt drives HTTP ETag/Last-Modified
+    @Version
+    private Long version;
+
+    private LocalDateTime updatedAt;
+
     public Book() {
     }
 
@@ -84,6 +95,14 @@ public class Book {
         this.price = price;
     }
 
+    public Long getRateVersion() {
+        return rateVersion;
+    }
+
+    public void setRateVersion(Long rateVersion) {
+        this.rateVersion = rateVersion;
+    }
+
     public boolean isDeleted() {
         return deleted;
     }
@@ -92,6 +111,22 @@ public class Book {
         this.deleted = deleted;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -16,6 +16,9 @@ public class Rate {
 
     private BigDecimal rate;
 
+    // true for the default rate stored when NBU was unreachable
+    private boolean fallback;
+
     public Rate() {
     }
 
@@ -47,4 +50,12 @@ public class Rate {
     public void setRate(BigDecimal rate) {
         this.rate = rate;
     }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public void setFallback(boolean fallback) {
+        this.fallback = fallback;
+    }
 }
@@ -0,0 +1,21 @@
+package ua.polozov.catalog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Report of a batch import")
+public record BatchImportResponse(
+        @Schema(description = "Number of books created", example = "998")
+        int created,
+
+        @Schema(description = "Rows skipped because an active book with the same ISBN exists", example = "1")
+        int duplicates,
+
+        @Schema(description = "Rows rejected by validation", example = "1")
+        int invalid,
+
+        @Schema(description = "Per-row results in request order")
+        List<BatchRowResult> rows
+) {
+}
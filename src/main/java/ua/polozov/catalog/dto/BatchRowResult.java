@@ -0,0 +1,25 @@
+package ua.polozov.catalog.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of a single row of a batch import")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchRowResult(
+        @Schema(description = "Zero-based position of the row in the request", example = "0")
+        int index,
+
+        @Schema(description = "Row outcome", example = "CREATED")
+        Status status,
+
+        @Schema(description = "ISBN of the row", example = "0131872486")
+        String isbn,
+
+        @Schema(description = "Database ID of the created book", example = "1")
+        Long id,
+
+        @Schema(description = "Reason the row was rejected", example = "isbn must be ISBN-10 or ISBN-13")
+        String message
+) {
+    public enum Status {CREATED, DUPLICATE, INVALID}
+}
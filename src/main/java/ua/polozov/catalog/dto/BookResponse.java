@@ -1,7 +1,11 @@
 package ua.polozov.catalog.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.math.BigDecimal;
+import java.util.Map;
+
 @Schema(description = "Book response with all details")
 public record BookResponse(
         @Schema(description = "Book database ID", example = "1")
@@ -20,6 +24,14 @@ public record BookResponse(
         Integer publicationYear,
 
         @Schema(description = "Price details in UAH and EUR")
-        PriceDto price
+        PriceDto price,
+
+        @Schema(description = "Price in each currency requested with 'currencies', converted from UAH at the current NBU rate",
+                example = "{\"USD\": 30.12, \"PLN\": 120.50}")
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        Map<String, BigDecimal> prices
 ) {
+    public BookResponse(Long id, String isbn, String title, String author, Integer publicationYear, PriceDto price) {
+        this(id, isbn, title, author, publicationYear, price, null);
+    }
 }
@@ -0,0 +1,37 @@
+package ua.polozov.catalog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.http.HttpStatus;
+
+import java.net.URI;
+
+/**
+ * RFC 7807 problem details returned by {@code ApiExceptionHandler}. Responses whose detail
+ * never varies are preallocated, so the common 404/409 paths allocate nothing for the body.
+ */
+@Schema(description = "Problem details (RFC 7807)")
+public record ProblemResponse(
+        @Schema(description = "Problem type", example = "about:blank")
+        URI type,
+
+        @Schema(description = "Short summary of the status", example = "Not Found")
+        String title,
+
+        @Schema(description = "HTTP status code", example = "404")
+        int status,
+
+        @Schema(description = "Explanation of this occurrence", example = "Book not found")
+        String detail
+) {
+
+    public static final URI ABOUT_BLANK = URI.create("about:blank");
+
+    public static final ProblemResponse BOOK_NOT_FOUND = of(HttpStatus.NOT_FOUND, "Book not found");
+    public static final ProblemResponse ISBN_CONFLICT = of(HttpStatus.CONFLICT, "Book with same ISBN already exists");
+    public static final ProblemResponse CONCURRENT_MODIFICATION =
+            of(HttpStatus.CONFLICT, "Book was modified concurrently, reload it and retry");
+
+    public static ProblemResponse of(HttpStatus status, String detail) {
+        return new ProblemResponse(ABOUT_BLANK, status.getReasonPhrase(), status.value(), detail);
+    }
+}
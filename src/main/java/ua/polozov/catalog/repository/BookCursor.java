@@ -0,0 +1,70 @@
+package ua.polozov.catalog.repository;
+
+import org.springframework.data.domain.Sort;
+import ua.polozov.catalog.domain.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset (seek) walk over books: the sort key and id of the last row
+ * returned. Serialized into an opaque URL-safe token for the {@code after} parameter.
+ *
+ * @param property  sorted property, one of {@link BookJdbcRepository#isSortable(String)}
+ * @param direction sort direction
+ * @param value     sort key of the last row ({@code null} for id sort or a null column)
+ * @param id        id of the last row, used as tie-breaker
+ */
+public record BookCursor(String property, Sort.Direction direction, Object value, long id) {
+
+    private static final char SEPARATOR = '\u001f';
+
+    public static BookCursor after(Book last, String property, Sort.Direction direction) {
+        Object value = switch (property) {
+            case "isbn" -> last.getIsbn();
+            case "title" -> last.getTitle();
+            case "author" -> last.getAuthor();
+            case "publicationYear" -> last.getPublicationYear();
+            default -> null;
+        };
+        return new BookCursor(property, direction, value, last.getId());
+    }
+
+    public String encode() {
+        String typedValue = value == null ? "n" : (value instanceof Integer ? "i" : "s") + value;
+        String raw = property + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + typedValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static BookCursor decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = raw.split(String.valueOf(SEPARATOR), 4);
+        if (parts.length != 4 || parts[3].isEmpty() || !BookJdbcRepository.isSortable(parts[0])) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        String typedValue = parts[3];
+        Object value = switch (typedValue.charAt(0)) {
+            case 'n' -> null;
+            case 'i' -> Integer.valueOf(typedValue.substring(1));
+            case 's' -> typedValue.substring(1);
+            default -> throw new IllegalArgumentException("Malformed cursor");
+        };
+        // a forged token must not reach the query with a value the column cannot be compared to
+        if (value != null && !expectedType(parts[0]).isInstance(value)) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new BookCursor(parts[0], Sort.Direction.valueOf(parts[1]), value, Long.parseLong(parts[2]));
+    }
+
+    // type of the sort key a cursor of this property carries; id cursors carry none
+    private static Class<?> expectedType(String property) {
+        return switch (property) {
+            case "isbn", "title", "author" -> String.class;
+            case "publicationYear" -> Integer.class;
+            default -> Void.class;
+        };
+    }
+}
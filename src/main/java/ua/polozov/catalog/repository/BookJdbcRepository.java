@@ -0,0 +1,176 @@
+package ua.polozov.catalog.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Hand-written queries over {@code books} that Spring Data derived queries cannot express.
+ */
+@Repository
+public class BookJdbcRepository {
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "ID",
+            "isbn", "ISBN",
+            "title", "TITLE",
+            "author", "AUTHOR",
+            "publicationYear", "PUBLICATION_YEAR");
+
+    static final RowMapper<Book> BOOK_ROW_MAPPER = (rs, rowNum) -> {
+        BigDecimal uah = rs.getBigDecimal("UAH");
+        BigDecimal eur = rs.getBigDecimal("EUR");
+        Price price = uah == null && eur == null ? null : new Price(uah, eur);
+        Book book = new Book(rs.getLong("ID"), rs.getString("ISBN"), rs.getString("TITLE"), rs.getString("AUTHOR"),
+                rs.getObject("PUBLICATION_YEAR", Integer.class), price);
+        book.setRateVersion(rs.getObject("RATE_VERSION", Long.class));
+        book.setDeleted(rs.getBoolean("DELETED"));
+        book.setVersion(rs.getObject("VERSION", Long.class));
+        book.setUpdatedAt(rs.getObject("UPDATED_AT", LocalDateTime.class));
+        return book;
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public BookJdbcRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public static boolean isSortable(String property) {
+        return SORT_COLUMNS.containsKey(property);
+    }
+
+    /**
+     * Returns up to {@code limit} active books ordered by {@code property} and id, starting
+     * right after {@code after} (or from the beginning when it is {@code null}). Uses seek
+     * predicates instead of OFFSET, so every page costs the same regardless of depth.
+     * Nulls sort first in ascending and last in descending order.
+     */
+    public List<Book> findActiveAfter(String property, Sort.Direction direction, BookCursor after, int limit) {
+        String column = "\"" + SORT_COLUMNS.get(property) + "\"";
+        boolean asc = direction.isAscending();
+        String cmp = asc ? ">" : "<";
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT * FROM \"books\" WHERE \"DELETED\" = FALSE");
+        if (after != null) {
+            params.addValue("id", after.id());
+            if ("id".equals(property)) {
+                sql.append(" AND \"ID\" ").append(cmp).append(" :id");
+            } else if (after.value() == null) {
+                sql.append(asc
+                        ? " AND ((" + column + " IS NULL AND \"ID\" > :id) OR " + column + " IS NOT NULL)"
+                        : " AND " + column + " IS NULL AND \"ID\" < :id");
+            } else {
+                params.addValue("value", after.value());
+                sql.append(" AND (").append(column).append(' ').append(cmp).append(" :value OR (")
+                        .append(column).append(" = :value AND \"ID\" ").append(cmp).append(" :id)")
+                        .append(asc ? ")" : " OR " + column + " IS NULL)");
+            }
+        }
+        String dir = asc ? "ASC" : "DESC";
+        sql.append(" ORDER BY ");
+        if (!"id".equals(property)) {
+            sql.append(column).append(' ').append(dir).append(asc ? " NULLS FIRST, " : " NULLS LAST, ");
+        }
+        sql.append("\"ID\" ").append(dir).append(" LIMIT :limit");
+        return jdbc.query(sql.toString(), params, BOOK_ROW_MAPPER);
+    }
+
+    /**
+     * Streams all active books ordered by id through a forward-only cursor, handing each
+     * row to {@code handler} without materializing entities. Columns are those of
+     * {@code books} ({@code ID}, {@code ISBN}, {@code TITLE}, ...).
+     */
+    public void streamActive(int fetchSize, RowCallbackHandler handler) {
+        jdbc.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT \"ID\", \"ISBN\", \"TITLE\", \"AUTHOR\", \"PUBLICATION_YEAR\", \"UAH\", \"EUR\", \"RATE_VERSION\", " +
+                            "COALESCE(\"VERSION\", 0) AS \"VERSION\" " +
+                            "FROM \"books\" WHERE \"DELETED\" = FALSE ORDER BY \"ID\"",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Returns up to {@code limit} books, deleted ones included, changed after the position
+     * {@code (updatedAt, id)} in {@code (UPDATED_AT, ID)} order, oldest change first. Used to
+     * pick up writes of other replicas.
+     */
+    public List<Book> findChangedAfter(LocalDateTime updatedAt, long id, int limit) {
+        return jdbc.query("SELECT * FROM \"books\" WHERE \"UPDATED_AT\" > :updatedAt OR (\"UPDATED_AT\" = :updatedAt AND \"ID\" > :id) " +
+                        "ORDER BY \"UPDATED_AT\", \"ID\" LIMIT :limit",
+                new MapSqlParameterSource("updatedAt", updatedAt).addValue("id", id).addValue("limit", limit), BOOK_ROW_MAPPER);
+    }
+
+    /**
+     * Returns version and modification time of an active book without reading the rest of
+     * the row; used to answer conditional GETs.
+     */
+    public Optional<BookStamp> findActiveStamp(long id) {
+        List<BookStamp> stamps = jdbc.query(
+                "SELECT COALESCE(\"VERSION\", 0) AS \"VERSION\", \"UPDATED_AT\" FROM \"books\" WHERE \"ID\" = :id AND \"DELETED\" = FALSE",
+                new MapSqlParameterSource("id", id),
+                (rs, rowNum) -> new BookStamp(rs.getLong("VERSION"), rs.getObject("UPDATED_AT", LocalDateTime.class)));
+        return stamps.stream().findFirst();
+    }
+
+    /**
+     * Returns those of {@code isbns} that already belong to an active book.
+     */
+    public Set<String> findActiveIsbns(Collection<String> isbns) {
+        if (isbns.isEmpty()) return Set.of();
+        return new HashSet<>(jdbc.queryForList(
+                "SELECT \"ACTIVE_ISBN\" FROM \"books\" WHERE \"ACTIVE_ISBN\" IN (:isbns)",
+                new MapSqlParameterSource("isbns", isbns), String.class));
+    }
+
+    /**
+     * Inserts books with one JDBC batch statement and returns their generated ids in order.
+     */
+    public List<Long> insertAll(List<Book> books) {
+        SqlParameterSource[] params = new SqlParameterSource[books.size()];
+        for (int i = 0; i < books.size(); i++) {
+            Book b = books.get(i);
+            Price price = b.getPrice();
+            params[i] = new MapSqlParameterSource()
+                    .addValue("isbn", b.getIsbn())
+                    .addValue("title", b.getTitle())
+                    .addValue("author", b.getAuthor())
+                    .addValue("publicationYear", b.getPublicationYear())
+                    .addValue("uah", price != null ? price.getUah() : null)
+                    .addValue("eur", price != null ? price.getEur() : null)
+                    .addValue("rateVersion", b.getRateVersion())
+                    .addValue("updatedAt", b.getUpdatedAt());
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate("INSERT INTO \"books\" (\"ISBN\", \"TITLE\", \"AUTHOR\", \"PUBLICATION_YEAR\", \"UAH\", \"EUR\", \"RATE_VERSION\", \"DELETED\", \"VERSION\", \"UPDATED_AT\") " +
+                "VALUES (:isbn, :title, :author, :publicationYear, :uah, :eur, :rateVersion, FALSE, 0, :updatedAt)", params, keys, new String[]{"ID"});
+        List<Long> ids = new ArrayList<>(books.size());
+        for (Map<String, Object> row : keys.getKeyList()) {
+            ids.add(((Number) row.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+}
@@ -2,19 +2,40 @@ package ua.polozov.catalog.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import ua.polozov.catalog.domain.Book;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 public interface BookRepository extends CrudRepository<Book, Long>, PagingAndSortingRepository<Book, Long> {
     Optional<Book> findByIsbnAndDeletedFalse(String isbn);
 
-    boolean existsByIsbnAndDeletedFalse(String isbn);
-
     Page<Book> findAllByDeletedFalse(Pageable pageable);
 
+    long countByDeletedFalse();
+
+    /**
+     * Recalculates EUR prices of active books with ids in {@code (fromId, toId]} whose price
+     * was calculated with an older rate version. Soft-deleted rows and rows without UAH
+     * price are left untouched.
+     *
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE \"books\" SET \"EUR\" = ROUND(\"UAH\" / :rate, 2), \"RATE_VERSION\" = :version " +
+            "WHERE \"ID\" > :fromId AND \"ID\" <= :toId AND \"DELETED\" = FALSE AND \"UAH\" IS NOT NULL " +
+            "AND (\"RATE_VERSION\" IS NULL OR \"RATE_VERSION\" < :version)")
+    int recalculateEur(@Param("rate") BigDecimal rate, @Param("version") long version,
+                       @Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT MAX(\"ID\") FROM \"books\"")
+    Long findMaxId();
+
     // explicit declarations to ensure methods are found by compiler
     @Override
     Book save(Book book);
@@ -0,0 +1,9 @@
+package ua.polozov.catalog.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version and last modification time of a book row, enough to validate a cached response.
+ */
+public record BookStamp(long version, LocalDateTime updatedAt) {
+}
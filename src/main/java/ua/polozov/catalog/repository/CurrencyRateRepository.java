@@ -0,0 +1,61 @@
+package ua.polozov.catalog.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The latest NBU currency table in {@code currency_rates}, one row per currency. Stored by the
+ * node that fetched it, so a restart or another replica can reuse it without calling NBU.
+ */
+@Repository
+public class CurrencyRateRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public CurrencyRateRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Replaces the stored table; call inside a transaction so readers never see it half-written.
+     */
+    public void replaceAll(Map<String, BigDecimal> rates, LocalDateTime fetchedAt) {
+        jdbc.getJdbcTemplate().update("DELETE FROM \"currency_rates\"");
+        SqlParameterSource[] params = rates.entrySet().stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("code", e.getKey())
+                        .addValue("rate", e.getValue())
+                        .addValue("fetchedAt", fetchedAt))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("INSERT INTO \"currency_rates\" (\"CODE\", \"RATE\", \"FETCHED_AT\") VALUES (:code, :rate, :fetchedAt)", params);
+    }
+
+    /**
+     * @return fetch time of the stored table, empty if none was stored yet
+     */
+    public Optional<LocalDateTime> findFetchedAt() {
+        List<LocalDateTime> fetched = jdbc.getJdbcTemplate().query("SELECT MAX(\"FETCHED_AT\") FROM \"currency_rates\"",
+                (rs, rowNum) -> rs.getObject(1, LocalDateTime.class));
+        return fetched.stream().filter(Objects::nonNull).findFirst();
+    }
+
+    /**
+     * @return UAH per one unit of currency keyed by ISO code
+     */
+    public Map<String, BigDecimal> findRates() {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        jdbc.getJdbcTemplate().query("SELECT \"CODE\", \"RATE\" FROM \"currency_rates\"",
+                rs -> { rates.put(rs.getString("CODE"), rs.getBigDecimal("RATE")); });
+        return rates;
+    }
+}
@@ -0,0 +1,47 @@
+package ua.polozov.catalog.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Named, time-limited leases in {@code job_leases}, used to let a single node run a job.
+ * Expiry is computed with the database clock, so replicas with skewed clocks still agree.
+ */
+@Repository
+public class LeaseRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public LeaseRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Takes or renews the lease {@code name} for {@code owner} until {@code ttlMillis} from now.
+     * Succeeds if the lease is free, expired or already held by {@code owner}.
+     *
+     * @return {@code true} if {@code owner} now holds the lease
+     */
+    public boolean tryAcquire(String name, String owner, long ttlMillis) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("name", name)
+                .addValue("owner", owner)
+                .addValue("ttl", ttlMillis);
+        int updated = jdbc.update(
+                "UPDATE \"job_leases\" SET \"OWNER\" = :owner, \"EXPIRES_AT\" = DATEADD(MILLISECOND, :ttl, LOCALTIMESTAMP) "
+                        + "WHERE \"NAME\" = :name AND (\"OWNER\" = :owner OR \"EXPIRES_AT\" <= LOCALTIMESTAMP)",
+                params);
+        if (updated == 1) return true;
+        try {
+            // first use of this lease name
+            jdbc.update("INSERT INTO \"job_leases\" (\"NAME\", \"OWNER\", \"EXPIRES_AT\") "
+                    + "VALUES (:name, :owner, DATEADD(MILLISECOND, :ttl, LOCALTIMESTAMP))", params);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // held by another node, or another node inserted it first
+            return false;
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package ua.polozov.catalog.repository;
 
+import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import ua.polozov.catalog.domain.Rate;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface RateRepository extends CrudRepository<Rate, Long> {
     Optional<Rate> findTopByOrderByDateDesc();
+
+    List<Rate> findAllByOrderByDateAsc();
+
+    // ids grow with every stored rate; polled to notice rates stored by other nodes
+    @Query("SELECT MAX(\"ID\") FROM \"rates\"")
+    Long findMaxId();
 }
 
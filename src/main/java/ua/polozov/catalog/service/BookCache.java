@@ -0,0 +1,110 @@
+package ua.polozov.catalog.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.polozov.catalog.dto.BookResponse;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read cache of rendered books for {@code GET /api/v1/books/{id}}; with serialized
+ * entries, list pages reuse them too. Caffeine's
+ * W-TinyLFU eviction keeps the frequently read books, weighted by an estimate of their size.
+ * Entries are dropped after commit of an update or delete. A rate change invalidates all of
+ * them at once: an entry priced with an older rate version is treated as a miss.
+ * Writes of other replicas are dropped by {@link BookChangeSync}; entries also expire
+ * {@code app.cache.books.ttl} after they were loaded, which bounds what that poll could miss.
+ * Statistics are published as {@code cache.*} metrics tagged {@code cache=books}.
+ */
+@Component
+public class BookCache {
+
+    private final Cache<Long, CachedBook> cache;
+
+    public BookCache(@Value("${app.cache.books.max-weight-bytes:67108864}") long maxWeightBytes,
+                     @Value("${app.cache.books.ttl:10m}") Duration ttl, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long id, CachedBook book) -> weigh(book))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "books");
+    }
+
+    /**
+     * Returns the cached book, loading it if absent or priced with a rate older than
+     * {@code rateVersion}. Returns {@code null} if the loader finds no book; misses are not cached.
+     */
+    public CachedBook get(long id, long rateVersion, Supplier<CachedBook> loader) {
+        CachedBook cached = cache.get(id, key -> loader.get());
+        if (cached != null && cached.rateVersion() < rateVersion) {
+            cache.asMap().remove(id, cached);
+            cached = cache.get(id, key -> loader.get());
+        }
+        return cached;
+    }
+
+    /**
+     * Variant for callers that already hold row {@code version} of the book (list pages): an
+     * entry is reused only if it holds that very row priced with at least {@code rateVersion};
+     * otherwise the caller's row is rendered and not cached. This path never inserts, since a
+     * page query may have read the row before an update whose invalidation already ran; only
+     * {@link #get(long, long, Supplier)} fills the cache. An entry older than the caller's row
+     * is dropped.
+     */
+    public CachedBook get(long id, long version, long rateVersion, Supplier<CachedBook> loader) {
+        CachedBook cached = cache.getIfPresent(id);
+        if (cached != null && cached.version() == version && cached.rateVersion() >= rateVersion) {
+            return cached;
+        }
+        if (cached != null && cached.version() < version) {
+            cache.asMap().remove(id, cached);
+        }
+        return loader.get();
+    }
+
+    /**
+     * Drops a book after the current transaction commits, if any. Caffeine blocks the removal
+     * while a load of the same key is in flight, so a load that read the old row cannot
+     * outlive the invalidation.
+     */
+    public void invalidate(long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        } else {
+            cache.invalidate(id);
+        }
+    }
+
+    /**
+     * Drops a book if the cached entry holds a row older than {@code version}; an entry of
+     * that version or a newer one is kept. Applied at once, without waiting for a transaction.
+     */
+    public void invalidateOlderThan(long id, long version) {
+        cache.asMap().computeIfPresent(id, (key, cached) -> cached.version() < version ? null : cached);
+    }
+
+    // rough heap footprint: object headers and fields plus two bytes per character, plus the JSON bytes
+    private static int weigh(CachedBook cached) {
+        BookResponse book = cached.response();
+        int json = cached.json() != null ? 16 + cached.json().length : 0;
+        return 200 + 2 * (length(book.isbn()) + length(book.title()) + length(book.author())) + json;
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+}
@@ -0,0 +1,78 @@
+package ua.polozov.catalog.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Change notification for the book caches of replicas sharing one database. Local writes
+ * update {@link BookCache} and {@link BookSearchIndex} after commit; writes of other nodes
+ * are picked up here by reading, in batches, the rows changed after a {@code (UPDATED_AT, ID)}
+ * high-water mark. Rows this node already applied (its own writes among them) are skipped by
+ * their row version, so they cost no index work.
+ * <p>
+ * The mark only moves past rows older than {@code app.cache.books.sync-lag}: a transaction
+ * may commit after stamping its row, and node clocks differ, so the most recent rows are read
+ * again on the next poll until they have settled.
+ */
+@Component
+public class BookChangeSync {
+
+    private static final Logger log = LoggerFactory.getLogger(BookChangeSync.class);
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final BookCache bookCache;
+    private final BookSearchIndex searchIndex;
+    private final Duration lag;
+    private final int batchSize;
+    // position of the last settled row, moved by the poll only. The index was built and the
+    // cache was empty before this bean was created.
+    private volatile LocalDateTime markUpdatedAt;
+    private volatile long markId;
+
+    public BookChangeSync(BookJdbcRepository bookJdbcRepository, BookCache bookCache, BookSearchIndex searchIndex,
+                          @Value("${app.cache.books.sync-lag:60s}") Duration lag,
+                          @Value("${app.cache.books.sync-batch-size:10000}") int batchSize) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.bookCache = bookCache;
+        this.searchIndex = searchIndex;
+        this.lag = lag;
+        this.batchSize = batchSize;
+        this.markUpdatedAt = LocalDateTime.now().minus(lag);
+    }
+
+    @Scheduled(initialDelayString = "${app.cache.books.sync-ms:30000}", fixedDelayString = "${app.cache.books.sync-ms:30000}")
+    public void syncFromDatabase() {
+        LocalDateTime settled = LocalDateTime.now().minus(lag);
+        LocalDateTime updatedAt = markUpdatedAt;
+        long id = markId;
+        int applied = 0;
+        List<Book> changed;
+        do {
+            changed = bookJdbcRepository.findChangedAfter(updatedAt, id, batchSize);
+            for (Book b : changed) {
+                bookCache.invalidateOlderThan(b.getId(), BookSearchIndex.versionOf(b));
+                // rows come in mark order, so the settled ones are a prefix
+                if (!b.getUpdatedAt().isAfter(settled)) {
+                    markUpdatedAt = b.getUpdatedAt();
+                    markId = b.getId();
+                }
+            }
+            applied += searchIndex.refresh(changed);
+            if (!changed.isEmpty()) {
+                Book last = changed.get(changed.size() - 1);
+                updatedAt = last.getUpdatedAt();
+                id = last.getId();
+            }
+        } while (changed.size() == batchSize);
+        if (applied > 0) log.debug("Applied {} books changed by other nodes", applied);
+    }
+}
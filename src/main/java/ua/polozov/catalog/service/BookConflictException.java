@@ -0,0 +1,19 @@
+package ua.polozov.catalog.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * The book changed after the version the caller based its update on. Expected under
+ * concurrent edits (every 409), so it carries no stack trace.
+ */
+public class BookConflictException extends OptimisticLockingFailureException {
+
+    public BookConflictException() {
+        super("Book was modified concurrently");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,137 @@
+package ua.polozov.catalog.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams the whole active catalog straight from a JDBC cursor to the response, so memory
+ * use does not depend on catalog size. Rows are never mapped to {@code Book} entities.
+ */
+@Service
+public class BookExportService {
+
+    private static final String CSV_HEADER = "id,isbn,title,author,publicationYear,uah,eur\n";
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final RateService rateService;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final boolean computedEur;
+
+    public BookExportService(BookJdbcRepository bookJdbcRepository, RateService rateService, ObjectMapper objectMapper,
+                             @Value("${app.export.fetch-size:1000}") int fetchSize,
+                             @Value("${app.pricing.computed-eur:false}") boolean computedEur) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.rateService = rateService;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.computedEur = computedEur;
+    }
+
+    /**
+     * Writes one JSON object per line with the same shape as {@code BookResponse}. Every line,
+     * the last one included, ends with a newline; an empty catalog writes nothing.
+     */
+    public void writeNdjson(OutputStream out) throws IOException {
+        RateSnapshot rate = rateService.currentSnapshot();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // each object is terminated by its own newline instead of separated from the next
+            gen.setRootValueSeparator(null);
+            bookJdbcRepository.streamActive(fetchSize, rs -> {
+                try {
+                    gen.writeStartObject();
+                    gen.writeNumberField("id", rs.getLong("ID"));
+                    gen.writeStringField("isbn", rs.getString("ISBN"));
+                    gen.writeStringField("title", rs.getString("TITLE"));
+                    gen.writeStringField("author", rs.getString("AUTHOR"));
+                    int year = rs.getInt("PUBLICATION_YEAR");
+                    if (rs.wasNull()) gen.writeNullField("publicationYear");
+                    else gen.writeNumberField("publicationYear", year);
+                    BigDecimal uah = rs.getBigDecimal("UAH");
+                    BigDecimal eur = eurOf(rs, uah, rate);
+                    if (uah == null && eur == null) {
+                        gen.writeNullField("price");
+                    } else {
+                        gen.writeObjectFieldStart("price");
+                        gen.writeFieldName("uah");
+                        if (uah == null) gen.writeNull(); else gen.writeNumber(uah);
+                        gen.writeFieldName("eur");
+                        if (eur == null) gen.writeNull(); else gen.writeNumber(eur);
+                        gen.writeEndObject();
+                    }
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    public void writeCsv(OutputStream out) throws IOException {
+        RateSnapshot rate = rateService.currentSnapshot();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        bookJdbcRepository.streamActive(fetchSize, rs -> {
+            try {
+                BigDecimal uah = rs.getBigDecimal("UAH");
+                BigDecimal eur = eurOf(rs, uah, rate);
+                writer.write(Long.toString(rs.getLong("ID")));
+                writer.write(',');
+                writeCsvField(writer, rs.getString("ISBN"));
+                writer.write(',');
+                writeCsvField(writer, rs.getString("TITLE"));
+                writer.write(',');
+                writeCsvField(writer, rs.getString("AUTHOR"));
+                writer.write(',');
+                int year = rs.getInt("PUBLICATION_YEAR");
+                if (!rs.wasNull()) writer.write(Integer.toString(year));
+                writer.write(',');
+                if (uah != null) writer.write(uah.toPlainString());
+                writer.write(',');
+                if (eur != null) writer.write(eur.toPlainString());
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    // same pricing rules as BookService/BookController: stale or computed EUR is derived from the snapshot
+    private BigDecimal eurOf(ResultSet rs, BigDecimal uah, RateSnapshot rate) throws SQLException {
+        BigDecimal eur = rs.getBigDecimal("EUR");
+        if (uah == null || rate == null) return eur;
+        long rateVersion = rs.getLong("RATE_VERSION");
+        boolean stale = rs.wasNull() || rateVersion < rate.version();
+        return computedEur || stale ? rate.toEur(uah) : eur;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
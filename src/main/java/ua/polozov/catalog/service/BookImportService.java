@@ -0,0 +1,182 @@
+package ua.polozov.catalog.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+import ua.polozov.catalog.dto.BatchImportResponse;
+import ua.polozov.catalog.dto.BatchRowResult;
+import ua.polozov.catalog.dto.BookRequest;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk import of books from a streamed JSON array or NDJSON body. Rows are validated one by
+ * one, then deduplicated and inserted in chunks: one set-based ISBN lookup and one JDBC
+ * batch insert per chunk, with EUR computed from a single rate snapshot for the whole import.
+ * The lookup only classifies rows; uniqueness itself is enforced by {@code UX_BOOKS_ACTIVE_ISBN}.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportService.class);
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final RateService rateService;
+    private final BookSearchIndex searchIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BookImportService(BookJdbcRepository bookJdbcRepository, RateService rateService, BookSearchIndex searchIndex,
+                             ObjectMapper objectMapper, Validator validator, TransactionTemplate transactionTemplate,
+                             @Value("${app.import.chunk-size:1000}") int chunkSize) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.rateService = rateService;
+        this.searchIndex = searchIndex;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * A body that breaks off or turns malformed part-way does not fail the import: rows before
+     * that point are imported as usual, and the report ends with an {@code INVALID} row at the
+     * index where parsing stopped, so the client knows exactly which rows were inserted.
+     *
+     * @throws IOException if the body cannot be read
+     */
+    public BatchImportResponse importBooks(InputStream body) throws IOException {
+        RateSnapshot rate = rateService.currentSnapshot();
+        List<BatchRowResult> results = new ArrayList<>();
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        long started = System.nanoTime();
+        int index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken first = parser.nextToken();
+            // a top-level array is walked element by element; otherwise the body is NDJSON
+            boolean array = first == JsonToken.START_ARRAY;
+            JsonToken token = array ? parser.nextToken() : first;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                JsonNode node = parser.readValueAsTree();
+                BatchRowResult rejected = null;
+                BookRequest req = null;
+                try {
+                    req = objectMapper.treeToValue(node, BookRequest.class);
+                    rejected = validate(index, req);
+                } catch (IOException | IllegalArgumentException e) {
+                    rejected = new BatchRowResult(index, BatchRowResult.Status.INVALID, null, null, "Malformed row");
+                }
+                if (rejected != null) {
+                    results.add(rejected);
+                } else {
+                    results.add(null); // filled in when the chunk is flushed
+                    chunk.add(new PendingRow(index, req));
+                    if (chunk.size() == chunkSize) flush(chunk, rate, results);
+                }
+                index++;
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            // earlier chunks are already committed; report where the body broke off
+            results.add(new BatchRowResult(index, BatchRowResult.Status.INVALID, null, null,
+                    "Malformed JSON, import stopped here: " + e.getOriginalMessage()));
+        }
+        flush(chunk, rate, results);
+
+        int created = 0, duplicates = 0, invalid = 0;
+        for (BatchRowResult r : results) {
+            switch (r.status()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case INVALID -> invalid++;
+            }
+        }
+        log.info("Imported {} books ({} duplicates, {} invalid) in {} ms",
+                created, duplicates, invalid, (System.nanoTime() - started) / 1_000_000);
+        return new BatchImportResponse(created, duplicates, invalid, results);
+    }
+
+    private BatchRowResult validate(int index, BookRequest req) {
+        Set<ConstraintViolation<BookRequest>> violations = validator.validate(req);
+        if (violations.isEmpty()) return null;
+        return new BatchRowResult(index, BatchRowResult.Status.INVALID, req.isbn(), null,
+                violations.iterator().next().getMessage());
+    }
+
+    private void flush(List<PendingRow> chunk, RateSnapshot rate, List<BatchRowResult> results) {
+        if (chunk.isEmpty()) return;
+        try {
+            insertChunk(chunk, rate, results);
+        } catch (DuplicateKeyException e) {
+            // a concurrent writer took one of the ISBNs after the lookup; the batch was rolled
+            // back, so classify the chunk again against the now committed rows
+            log.info("Import chunk raced with a concurrent insert, retrying: {}", e.getMostSpecificCause().getMessage());
+            insertChunk(chunk, rate, results);
+        }
+        chunk.clear();
+    }
+
+    private void insertChunk(List<PendingRow> chunk, RateSnapshot rate, List<BatchRowResult> results) {
+        Set<String> isbns = new HashSet<>();
+        for (PendingRow row : chunk) isbns.add(row.request().isbn());
+        Set<String> taken = new HashSet<>(bookJdbcRepository.findActiveIsbns(isbns));
+
+        List<PendingRow> accepted = new ArrayList<>(chunk.size());
+        List<Book> books = new ArrayList<>(chunk.size());
+        for (PendingRow row : chunk) {
+            BookRequest req = row.request();
+            // add() also rejects ISBNs repeated within the chunk
+            if (!taken.add(req.isbn())) {
+                results.set(row.index(), new BatchRowResult(row.index(), BatchRowResult.Status.DUPLICATE, req.isbn(), null,
+                        "Book with same ISBN already exists"));
+                continue;
+            }
+            accepted.add(row);
+            books.add(toBook(req, rate));
+        }
+        if (!books.isEmpty()) {
+            List<Long> ids = transactionTemplate.execute(status -> bookJdbcRepository.insertAll(books));
+            for (int i = 0; i < accepted.size(); i++) {
+                PendingRow row = accepted.get(i);
+                // inserted with VERSION 0
+                searchIndex.add(ids.get(i), 0, row.request().title(), row.request().author());
+                results.set(row.index(), new BatchRowResult(row.index(), BatchRowResult.Status.CREATED,
+                        row.request().isbn(), ids.get(i), null));
+            }
+        }
+    }
+
+    private static Book toBook(BookRequest req, RateSnapshot rate) {
+        BigDecimal uah = req.price().uah();
+        Book book = new Book(null, req.isbn(), req.title(), req.author(), req.publicationYear(),
+                new Price(uah, rate != null ? rate.toEur(uah) : null));
+        book.setRateVersion(rate != null ? rate.version() : null);
+        book.setUpdatedAt(LocalDateTime.now());
+        return book;
+    }
+
+    private record PendingRow(int index, BookRequest request) {
+    }
+}
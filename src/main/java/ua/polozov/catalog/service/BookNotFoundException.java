@@ -0,0 +1,19 @@
+package ua.polozov.catalog.service;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A book that does not exist or is soft-deleted. Part of normal control flow (every 404),
+ * so it carries no stack trace.
+ */
+public class BookNotFoundException extends NoSuchElementException {
+
+    public BookNotFoundException() {
+        super("Book not found");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,266 @@
+package ua.polozov.catalog.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over title and author of active books. Built from the database
+ * once at startup and then maintained incrementally by {@link BookService} and
+ * {@link BookImportService}; changes made inside a transaction are applied after it commits.
+ * Writes of other replicas reach it through {@link BookChangeSync}. Each book's terms and
+ * row version are kept per id, so a book is re-indexed by its own terms and a change that is
+ * already indexed is skipped.
+ * A query matches books containing every query term; title hits rank above author hits.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int TITLE_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 1;
+    private static final int LOAD_FETCH_SIZE = 1000;
+    private static final int ID_BITS = 48;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final String[] NO_TERMS = new String[0];
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final Map<String, PostingList> titleTerms = new HashMap<>();
+    private final Map<String, PostingList> authorTerms = new HashMap<>();
+    // forward index: what each book is indexed under, and at which row version; deleted books
+    // stay as entries without terms so that a stale row of them is not indexed again
+    private final Map<Long, Indexed> books = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookSearchIndex(BookJdbcRepository bookJdbcRepository) {
+        this.bookJdbcRepository = bookJdbcRepository;
+    }
+
+    @PostConstruct
+    void load() {
+        long started = System.nanoTime();
+        int[] count = {0};
+        bookJdbcRepository.streamActive(LOAD_FETCH_SIZE, rs -> {
+            apply(rs.getLong("ID"), rs.getLong("VERSION"), rs.getString("TITLE"), rs.getString("AUTHOR"), true);
+            count[0]++;
+        });
+        log.info("Search index built for {} books in {} ms", count[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Indexes row {@code version} of a book, in place of whatever an older version of it was
+     * indexed under; applied after the current transaction commits, if any.
+     */
+    public void add(long id, long version, String title, String author) {
+        afterCommit(() -> apply(id, version, title, author, true));
+    }
+
+    /**
+     * Removes a book deleted at row {@code version}; applied after the current transaction
+     * commits, if any.
+     */
+    public void remove(long id, long version) {
+        afterCommit(() -> apply(id, version, null, null, false));
+    }
+
+    /**
+     * Applies rows read back from the database, skipping those whose version (or a newer one)
+     * is indexed already. Each book costs a lookup of its own terms, not a pass over the index.
+     *
+     * @return number of books whose entry changed
+     */
+    public int refresh(Collection<Book> changed) {
+        int applied = 0;
+        for (Book b : changed) {
+            if (apply(b.getId(), versionOf(b), b.getTitle(), b.getAuthor(), !b.isDeleted())) applied++;
+        }
+        return applied;
+    }
+
+    static long versionOf(Book book) {
+        return book.getVersion() != null ? book.getVersion() : 0;
+    }
+
+    /**
+     * Returns ids of matching books ranked by score (then by id), skipping {@code offset} hits.
+     * An offset past the last hit yields no ids but still the total.
+     */
+    public Hits search(String query, long offset, int limit) {
+        String[] terms = tokenize(query).toArray(String[]::new);
+        if (terms.length == 0) return new Hits(List.of(), 0);
+        lock.readLock().lock();
+        try {
+            PostingList[] inTitle = new PostingList[terms.length];
+            PostingList[] inAuthor = new PostingList[terms.length];
+            int rarest = -1;
+            int rarestSize = Integer.MAX_VALUE;
+            for (int i = 0; i < terms.length; i++) {
+                inTitle[i] = titleTerms.get(terms[i]);
+                inAuthor[i] = authorTerms.get(terms[i]);
+                int size = sizeOf(inTitle[i]) + sizeOf(inAuthor[i]);
+                if (size == 0) return new Hits(List.of(), 0);
+                if (size < rarestSize) {
+                    rarest = i;
+                    rarestSize = size;
+                }
+            }
+            // candidates come from the rarest term; every other term is checked by binary search
+            Ranking ranking = new Ranking(rarestSize);
+            collect(inTitle[rarest], inTitle, inAuthor, ranking, null);
+            collect(inAuthor[rarest], inTitle, inAuthor, ranking, inTitle[rarest]);
+            long[] keys = ranking.sorted();
+            if (offset >= keys.length) return new Hits(List.of(), keys.length);
+            List<Long> ids = new ArrayList<>(Math.min(limit, keys.length - (int) offset));
+            for (int i = (int) offset; i < keys.length && ids.size() < limit; i++) {
+                ids.add(keys[i] & ID_MASK);
+            }
+            return new Hits(ids, keys.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ranks every id in source that matches all terms; ids in skip were collected already.
+    // source is ascending, so each term keeps a cursor into its lists instead of searching from scratch
+    private static void collect(PostingList source, PostingList[] inTitle, PostingList[] inAuthor,
+                                Ranking ranking, PostingList skip) {
+        if (source == null) return;
+        int[] titlePos = new int[inTitle.length];
+        int[] authorPos = new int[inAuthor.length];
+        int skipPos = 0;
+        for (int n = 0; n < source.size(); n++) {
+            long id = source.get(n);
+            if (skip != null) {
+                skipPos = skip.seek(skipPos, id);
+                if (skipPos < skip.size() && skip.get(skipPos) == id) continue;
+            }
+            int score = 0;
+            for (int i = 0; i < inTitle.length && score >= 0; i++) {
+                int termScore = 0;
+                if (inTitle[i] != null) {
+                    titlePos[i] = inTitle[i].seek(titlePos[i], id);
+                    if (titlePos[i] < inTitle[i].size() && inTitle[i].get(titlePos[i]) == id) termScore += TITLE_WEIGHT;
+                }
+                if (inAuthor[i] != null) {
+                    authorPos[i] = inAuthor[i].seek(authorPos[i], id);
+                    if (authorPos[i] < inAuthor[i].size() && inAuthor[i].get(authorPos[i]) == id) termScore += AUTHOR_WEIGHT;
+                }
+                score = termScore == 0 ? -1 : score + termScore;
+            }
+            if (score > 0) ranking.add(id, score);
+        }
+    }
+
+    // false if this version of the book, or a newer one, is indexed already
+    private boolean apply(long id, long version, String title, String author, boolean active) {
+        String[] titleTokens = active ? tokenize(title).toArray(String[]::new) : NO_TERMS;
+        String[] authorTokens = active ? tokenize(author).toArray(String[]::new) : NO_TERMS;
+        lock.writeLock().lock();
+        try {
+            Indexed previous = books.get(id);
+            if (previous != null && previous.version() >= version) return false;
+            if (previous != null) {
+                update(titleTerms, previous.title(), id, false);
+                update(authorTerms, previous.author(), id, false);
+            }
+            update(titleTerms, titleTokens, id, true);
+            update(authorTerms, authorTokens, id, true);
+            books.put(id, new Indexed(version, titleTokens, authorTokens));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void update(Map<String, PostingList> index, String[] terms, long id, boolean add) {
+        for (String term : terms) {
+            if (add) {
+                index.computeIfAbsent(term, t -> new PostingList()).add(id);
+            } else {
+                PostingList ids = index.get(term);
+                if (ids == null) continue;
+                ids.remove(id);
+                if (ids.isEmpty()) index.remove(term);
+            }
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return Set.of();
+        Set<String> terms = new LinkedHashSet<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) terms.add(token);
+        }
+        return terms;
+    }
+
+    private static int sizeOf(PostingList ids) {
+        return ids != null ? ids.size() : 0;
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Hits packed as {@code (inverted score << 48) | id} in a primitive array, so a single
+     * {@link Arrays#sort(long[])} orders them by score descending, then id ascending.
+     */
+    private static final class Ranking {
+
+        private long[] keys;
+        private int size;
+
+        Ranking(int expected) {
+            keys = new long[Math.max(16, Math.min(expected, 1 << 16))];
+        }
+
+        void add(long id, int score) {
+            if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+            keys[size++] = ((long) (Short.MAX_VALUE - score) << ID_BITS) | id;
+        }
+
+        long[] sorted() {
+            long[] result = Arrays.copyOf(keys, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    private record Indexed(long version, String[] title, String[] author) {
+    }
+
+    /**
+     * One page of ranked hits and the total number of matching books.
+     */
+    public record Hits(List<Long> ids, int total) {
+    }
+}
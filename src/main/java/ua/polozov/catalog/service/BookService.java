@@ -1,96 +1,231 @@
 package ua.polozov.catalog.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ua.polozov.catalog.domain.Book;
 import ua.polozov.catalog.domain.Price;
 import ua.polozov.catalog.dto.BookRequest;
+import ua.polozov.catalog.repository.BookCursor;
+import ua.polozov.catalog.repository.BookJdbcRepository;
 import ua.polozov.catalog.repository.BookRepository;
+import ua.polozov.catalog.repository.BookStamp;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.NoSuchElementException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 @Service
 public class BookService {
 
     private final BookRepository bookRepository;
+    private final BookJdbcRepository bookJdbcRepository;
     private final RateService rateService;
-    private final ReentrantReadWriteLock lock;
+    private final BookSearchIndex searchIndex;
+    private final BookCache bookCache;
+    private final MeterRegistry meterRegistry;
 
-    public BookService(BookRepository bookRepository, RateService rateService, ReentrantReadWriteLock lock) {
+    public BookService(BookRepository bookRepository, BookJdbcRepository bookJdbcRepository, RateService rateService,
+                       BookSearchIndex searchIndex, BookCache bookCache, MeterRegistry meterRegistry) {
         this.bookRepository = bookRepository;
+        this.bookJdbcRepository = bookJdbcRepository;
         this.rateService = rateService;
-        this.lock = lock;
+        this.searchIndex = searchIndex;
+        this.bookCache = bookCache;
+        this.meterRegistry = meterRegistry;
     }
 
     @Transactional
     public Book create(BookRequest req) {
-        lock.readLock().lock();
-        try {
-            if (bookRepository.existsByIsbnAndDeletedFalse(req.isbn())) {
-                throw new IllegalArgumentException("Book with same ISBN already exists");
-            }
-            BigDecimal uah = req.price().uah();
-            BigDecimal rate = rateService.getCurrentRate();
-            BigDecimal eur = null;
-            if (rate != null) {
-                eur = uah.divide(rate, 2, RoundingMode.HALF_UP);
-            }
-            Price price = new Price(uah, eur);
-            Book book = new Book();
-            book.setIsbn(req.isbn());
-            book.setTitle(req.title());
-            book.setAuthor(req.author());
-            book.setPublicationYear(req.publicationYear());
-            book.setPrice(price);
-            return bookRepository.save(book);
-        } finally {
-            lock.readLock().unlock();
+        return timed("create", () -> doCreate(req));
+    }
+
+    private Book doCreate(BookRequest req) {
+        BigDecimal uah = req.price().uah();
+        RateSnapshot rate = rateService.currentSnapshot();
+        BigDecimal eur = null;
+        if (rate != null) {
+            eur = rate.toEur(uah);
         }
+        Price price = new Price(uah, eur);
+        Book book = new Book();
+        book.setIsbn(req.isbn());
+        book.setTitle(req.title());
+        book.setAuthor(req.author());
+        book.setPublicationYear(req.publicationYear());
+        book.setPrice(price);
+        book.setRateVersion(rate != null ? rate.version() : null);
+        book.setUpdatedAt(LocalDateTime.now());
+        Book saved = saveUnique(book);
+        searchIndex.add(saved.getId(), BookSearchIndex.versionOf(saved), saved.getTitle(), saved.getAuthor());
+        return saved;
     }
 
     public Optional<Book> findById(Long id) {
-        return bookRepository.findById(id).filter(b -> !b.isDeleted());
+        return bookRepository.findById(id).filter(b -> !b.isDeleted()).map(this::withCurrentPrice);
+    }
+
+    public Page<Book> findAll(Pageable pageable) {
+        Page<Book> page = bookRepository.findAllByDeletedFalse(pageable);
+        page.forEach(this::withCurrentPrice);
+        return page;
+    }
+
+    /**
+     * Keyset page: up to {@code limit} active books following {@code after} in the given order.
+     */
+    public List<Book> findAfter(String property, Sort.Direction direction, BookCursor after, int limit) {
+        List<Book> books = bookJdbcRepository.findActiveAfter(property, direction, after, limit);
+        books.forEach(this::withCurrentPrice);
+        return books;
+    }
+
+    /**
+     * Version and modification time of an active book, read without loading the row.
+     */
+    public Optional<BookStamp> findStamp(Long id) {
+        return bookJdbcRepository.findActiveStamp(id);
+    }
+
+    public long countActive() {
+        return bookRepository.countByDeletedFalse();
+    }
+
+    /**
+     * Full-text search over title and author, ranked by {@link BookSearchIndex}.
+     */
+    public Page<Book> search(String query, Pageable pageable) {
+        BookSearchIndex.Hits hits = searchIndex.search(query, pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Book> byId = new HashMap<>();
+        bookRepository.findAllById(hits.ids()).forEach(b -> byId.put(b.getId(), b));
+        List<Book> books = new ArrayList<>(hits.ids().size());
+        for (Long id : hits.ids()) {
+            Book book = byId.get(id);
+            if (book != null && !book.isDeleted()) books.add(withCurrentPrice(book));
+        }
+        return new PageImpl<>(books, pageable, hits.total());
     }
 
     @Transactional
     public Book updatePartial(Long id, BookRequest req) {
-        lock.readLock().lock();
+        return updatePartial(id, req, null);
+    }
+
+    /**
+     * Applies the non-null fields of {@code req}. The write is conditional on the row version,
+     * so a concurrent update makes it fail with {@link OptimisticLockingFailureException}
+     * instead of being overwritten.
+     *
+     * @param expectedVersion version the caller based the change on (from {@code If-Match}),
+     *                        or {@code null} for the version read here
+     */
+    @Transactional
+    public Book updatePartial(Long id, BookRequest req, Long expectedVersion) {
+        return timed("update", () -> doUpdatePartial(id, req, expectedVersion));
+    }
+
+    private Book doUpdatePartial(Long id, BookRequest req, Long expectedVersion) {
+        Book book = bookRepository.findById(id).orElseThrow(BookNotFoundException::new);
+        if (book.isDeleted()) throw new BookNotFoundException();
+        if (expectedVersion != null && !expectedVersion.equals(book.getVersion())) {
+            throw new BookConflictException();
+        }
+        if (req.isbn() != null) book.setIsbn(req.isbn());
+        if (req.title() != null) book.setTitle(req.title());
+        if (req.author() != null) book.setAuthor(req.author());
+        if (req.publicationYear() != null) book.setPublicationYear(req.publicationYear());
+        if (req.price() != null && req.price().uah() != null) {
+            BigDecimal uah = req.price().uah();
+            RateSnapshot rate = rateService.currentSnapshot();
+            BigDecimal eur = null;
+            if (rate != null) eur = rate.toEur(uah);
+            Price p = book.getPrice();
+            if (p == null) p = new Price(uah, eur);
+            else { p.setUah(uah); p.setEur(eur); }
+            book.setPrice(p);
+            book.setRateVersion(rate != null ? rate.version() : null);
+        }
+        touch(book);
+        Book saved = saveUnique(withCurrentPrice(book));
+        bookCache.invalidate(id);
+        // re-indexed even if title and author are unchanged: the index then holds this version
+        // and BookChangeSync skips the row when it reads it back
+        searchIndex.add(saved.getId(), BookSearchIndex.versionOf(saved), saved.getTitle(), saved.getAuthor());
+        return saved;
+    }
+
+    @Transactional
+    public void softDelete(Long id) {
+        timed("delete", () -> {
+            Book book = bookRepository.findById(id).orElseThrow(BookNotFoundException::new);
+            book.setDeleted(true);
+            touch(book);
+            Book saved = bookRepository.save(book);
+            bookCache.invalidate(id);
+            searchIndex.remove(saved.getId(), BookSearchIndex.versionOf(saved));
+            return saved;
+        });
+    }
+
+    // the version itself is incremented by Spring Data on save
+    private static void touch(Book book) {
+        book.setUpdatedAt(LocalDateTime.now());
+    }
+
+    /**
+     * Saves a book, relying on the {@code UX_BOOKS_ACTIVE_ISBN} unique index instead of a prior
+     * lookup. A violation surfaces as {@link DuplicateKeyException} (mapped to 409), unwrapped
+     * from the aggregate-change exception Spring Data JDBC may wrap it in.
+     */
+    private Book saveUnique(Book book) {
         try {
-            Book book = bookRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Book not found"));
-            if (book.isDeleted()) throw new NoSuchElementException("Book not found");
-            if (req.isbn() != null && !req.isbn().equals(book.getIsbn())) {
-                if (bookRepository.existsByIsbnAndDeletedFalse(req.isbn())) {
-                    throw new IllegalArgumentException("Book with same ISBN already exists");
-                }
-                book.setIsbn(req.isbn());
-            }
-            if (req.title() != null) book.setTitle(req.title());
-            if (req.author() != null) book.setAuthor(req.author());
-            if (req.publicationYear() != null) book.setPublicationYear(req.publicationYear());
-            if (req.price() != null && req.price().uah() != null) {
-                BigDecimal uah = req.price().uah();
-                BigDecimal rate = rateService.getCurrentRate();
-                BigDecimal eur = null;
-                if (rate != null) eur = uah.divide(rate, 2, RoundingMode.HALF_UP);
-                Price p = book.getPrice();
-                if (p == null) p = new Price(uah, eur);
-                else { p.setUah(uah); p.setEur(eur); }
-                book.setPrice(p);
-            }
             return bookRepository.save(book);
+        } catch (DuplicateKeyException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof DuplicateKeyException duplicate) throw duplicate;
+            }
+            throw e;
+        }
+    }
+
+    // records latency of a write operation, tagged with its outcome (success or exception class)
+    private <T> T timed(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
         } finally {
-            lock.readLock().unlock();
+            sample.stop(meterRegistry.timer("catalog.books.operation", "operation", operation, "outcome", outcome));
         }
     }
 
-    @Transactional
-    public void softDelete(Long id) {
-        Book book = bookRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Book not found"));
-        book.setDeleted(true);
-        bookRepository.save(book);
+    // rows whose EUR was calculated with an older rate version are corrected on read;
+    // RateService rewrites them in the background after each rate change
+    private Book withCurrentPrice(Book book) {
+        Price price = book.getPrice();
+        if (price == null || price.getUah() == null) return book;
+        RateSnapshot rate = rateService.currentSnapshot();
+        if (rate != null && (book.getRateVersion() == null || book.getRateVersion() < rate.version())) {
+            price.setEur(rate.toEur(price.getUah()));
+            book.setRateVersion(rate.version());
+        }
+        return book;
     }
 }
@@ -0,0 +1,17 @@
+package ua.polozov.catalog.service;
+
+import ua.polozov.catalog.dto.BookResponse;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rendered book held by {@link BookCache}, with the row version and the rate version its
+ * prices were calculated with. {@code json} holds the serialized response when
+ * {@code app.cache.books.serialized} is on, otherwise it is {@code null}.
+ */
+public record CachedBook(BookResponse response, byte[] json, long version, LocalDateTime updatedAt, long rateVersion) {
+
+    public CachedBook(BookResponse response, long version, LocalDateTime updatedAt, long rateVersion) {
+        this(response, null, version, updatedAt, rateVersion);
+    }
+}
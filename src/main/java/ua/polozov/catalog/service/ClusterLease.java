@@ -0,0 +1,45 @@
+package ua.polozov.catalog.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ua.polozov.catalog.repository.LeaseRepository;
+
+import java.util.UUID;
+
+/**
+ * Picks the single node that runs a scheduled job when several replicas share the database.
+ * A lease is not released after the job: it is kept until it expires, so replicas whose
+ * schedule fires a little later (clock skew, a slow start) still skip that run.
+ */
+@Component
+public class ClusterLease {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterLease.class);
+
+    private final LeaseRepository leaseRepository;
+    private final String nodeId;
+    private final long ttlMillis;
+
+    public ClusterLease(LeaseRepository leaseRepository,
+                        @Value("${app.cluster.node-id:}") String nodeId,
+                        @Value("${app.cluster.lease-ms:600000}") long ttlMillis) {
+        this.leaseRepository = leaseRepository;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return {@code true} if this node holds the lease {@code name} and should run the job
+     */
+    public boolean tryAcquire(String name) {
+        boolean acquired = leaseRepository.tryAcquire(name, nodeId, ttlMillis);
+        if (!acquired) log.debug("Lease {} is held by another node; skipping", name);
+        return acquired;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,61 @@
+package ua.polozov.catalog.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable table of UAH rates for every currency published by NBU, replaced as a whole on
+ * each fetch. Prices in currencies other than EUR are converted from the UAH price on read,
+ * so supporting another currency needs neither a stored column nor a recalculation pass.
+ */
+public final class CurrencyRates {
+
+    public static final CurrencyRates EMPTY = new CurrencyRates(Map.of(), null);
+
+    // UAH per one unit of currency, keyed by upper-case ISO code
+    private final Map<String, BigDecimal> rates;
+    private final LocalDateTime date;
+
+    public CurrencyRates(Map<String, BigDecimal> rates, LocalDateTime date) {
+        this.rates = Map.copyOf(rates);
+        this.date = date;
+    }
+
+    /**
+     * @return UAH per one unit of {@code currency}, or {@code null} if NBU does not publish it
+     */
+    public BigDecimal rate(String currency) {
+        return rates.get(currency.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Converts a UAH amount to {@code currency}, rounded to 2 decimals (HALF_UP).
+     *
+     * @return converted amount, or {@code null} if the currency is unknown
+     */
+    public BigDecimal convert(BigDecimal uah, String currency) {
+        BigDecimal rate = rate(currency);
+        return rate != null ? uah.divide(rate, 2, RoundingMode.HALF_UP) : null;
+    }
+
+    public Set<String> currencies() {
+        return rates.keySet();
+    }
+
+    public boolean isEmpty() {
+        return rates.isEmpty();
+    }
+
+    public LocalDateTime date() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        return "CurrencyRates[" + rates.size() + " currencies, date=" + date + "]";
+    }
+}
@@ -0,0 +1,71 @@
+package ua.polozov.catalog.service;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, duplicate-free list of book ids stored in a primitive array. New books get
+ * increasing ids, so adding is usually an append; membership is a binary search.
+ * Not thread-safe; {@link BookSearchIndex} guards it with its lock.
+ */
+final class PostingList {
+
+    private long[] ids = new long[4];
+    private int size;
+
+    void add(long id) {
+        if (size > 0 && ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id;
+            return;
+        }
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) return;
+        int insertAt = -pos - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    void remove(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) return;
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+    }
+
+    /**
+     * Returns the first position at or after {@code from} holding an id {@code >= id}
+     * ({@link #size()} if there is none). Gallops from {@code from}, so walking ascending ids
+     * through the list costs little more than a merge.
+     */
+    int seek(int from, long id) {
+        if (from >= size || ids[from] >= id) return from;
+        int step = 1;
+        int lo = from;
+        int hi = from + 1;
+        while (hi < size && ids[hi] < id) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        int pos = Arrays.binarySearch(ids, lo + 1, Math.min(hi, size - 1) + 1, id);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+    }
+}
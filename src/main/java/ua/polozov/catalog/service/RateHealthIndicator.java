@@ -0,0 +1,40 @@
+package ua.polozov.catalog.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports whether a real exchange rate is loaded. OUT_OF_SERVICE until the first rate is
+ * available and, unless {@code app.rate.readiness.accept-fallback=true}, also while only the
+ * default (fallback) rate is in use; UP once a rate from NBU is loaded. Part of the readiness group.
+ */
+@Component
+public class RateHealthIndicator implements HealthIndicator {
+
+    private final RateService rateService;
+    // true: serve traffic on the fallback rate instead of waiting for NBU
+    private final boolean acceptFallback;
+
+    public RateHealthIndicator(RateService rateService,
+                               @Value("${app.rate.readiness.accept-fallback:false}") boolean acceptFallback) {
+        this.rateService = rateService;
+        this.acceptFallback = acceptFallback;
+    }
+
+    @Override
+    public Health health() {
+        RateSnapshot rate = rateService.loadedSnapshot();
+        if (rate == null) {
+            return Health.outOfService().withDetail("loaded", false).build();
+        }
+        Health.Builder status = rate.fallback() && !acceptFallback ? Health.outOfService() : Health.up();
+        return status
+                .withDetail("loaded", true)
+                .withDetail("fallback", rate.fallback())
+                .withDetail("rate", rate.rate())
+                .withDetail("version", rate.version())
+                .build();
+    }
+}
@@ -1,118 +1,336 @@
 package ua.polozov.catalog.service;
 
-import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
+import org.springframework.dao.DataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.polozov.catalog.client.NbuClientException;
+import ua.polozov.catalog.client.NbuRateClient;
 import ua.polozov.catalog.domain.Rate;
-import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.repository.CurrencyRateRepository;
 import ua.polozov.catalog.repository.RateRepository;
 import ua.polozov.catalog.repository.BookRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class RateService {
 
     private static final Logger log = LoggerFactory.getLogger(RateService.class);
 
+    // lease names, see ClusterLease
+    static final String REFRESH_LEASE = "rate-refresh";
+    static final String FALLBACK_RETRY_LEASE = "rate-fallback-retry";
+
+    /** Rate used when NBU is unreachable and no rate has ever been stored. */
+    public static final BigDecimal FALLBACK_RATE = new BigDecimal("40.00");
+
     private final RateRepository rateRepository;
+    private final CurrencyRateRepository currencyRateRepository;
     private final BookRepository bookRepository;
-    private final RestTemplate restTemplate;
-    private final String nbuUrl;
-    private final ReentrantReadWriteLock lock;
+    private final NbuRateClient nbuRateClient;
+    private final ClusterLease clusterLease;
+    private final TransactionTemplate transactionTemplate;
+    private final int recalculationChunkSize;
+    private final boolean computedEur;
+    private final Timer publishTimer;
+    private final Timer recalculationTimer;
+    private final Counter recalculatedBooks;
+    private final Timer nbuFetchSuccess;
+    private final Timer nbuFetchFailure;
+    // current rate held in memory; readers never touch the rates table once it is set
+    private final AtomicReference<RateSnapshot> snapshot = new AtomicReference<>();
+    // every stored rate keyed by the moment it took effect, for point-in-time pricing
+    private final ConcurrentSkipListMap<LocalDateTime, RateSnapshot> history = new ConcurrentSkipListMap<>();
+    private volatile boolean historyLoaded;
+    private final ReentrantLock historyLoadLock = new ReentrantLock();
+    // all NBU currencies from the latest fetch; EUR prices still come from the versioned snapshot
+    private final AtomicReference<CurrencyRates> currencyRates = new AtomicReference<>(CurrencyRates.EMPTY);
 
-    public RateService(RateRepository rateRepository, BookRepository bookRepository, RestTemplate restTemplate, @Value("${app.nbu.url}") String nbuUrl, ReentrantReadWriteLock lock) {
+    public RateService(RateRepository rateRepository, CurrencyRateRepository currencyRateRepository, BookRepository bookRepository, NbuRateClient nbuRateClient,
+                       ClusterLease clusterLease, TransactionTemplate transactionTemplate, @Value("${app.rate.recalculation-chunk-size:10000}") int recalculationChunkSize,
+                       @Value("${app.pricing.computed-eur:false}") boolean computedEur, MeterRegistry meterRegistry) {
         this.rateRepository = rateRepository;
+        this.currencyRateRepository = currencyRateRepository;
         this.bookRepository = bookRepository;
-        this.restTemplate = restTemplate;
-        this.nbuUrl = nbuUrl;
-        this.lock = lock;
+        this.nbuRateClient = nbuRateClient;
+        this.clusterLease = clusterLease;
+        this.transactionTemplate = transactionTemplate;
+        this.recalculationChunkSize = recalculationChunkSize;
+        this.computedEur = computedEur;
+        this.publishTimer = Timer.builder("catalog.rate.publish")
+                .description("Time to store and publish a new rate version")
+                .register(meterRegistry);
+        this.recalculationTimer = Timer.builder("catalog.rate.recalculation")
+                .description("Time to rewrite stored EUR prices after a rate change")
+                .register(meterRegistry);
+        this.recalculatedBooks = Counter.builder("catalog.rate.recalculated.books")
+                .description("Books whose stored EUR price was rewritten after a rate change")
+                .register(meterRegistry);
+        this.nbuFetchSuccess = nbuFetchTimer(meterRegistry, "success");
+        this.nbuFetchFailure = nbuFetchTimer(meterRegistry, "failure");
+    }
+
+    private static Timer nbuFetchTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("catalog.nbu.fetch")
+                .description("Latency of exchange rate requests to the NBU API")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
-    @PostConstruct
+    /**
+     * Loads the initial rate. Runs in the background once the application is ready
+     * (see {@link RateWarmup}), so startup never waits for the NBU API. A rate already in
+     * the database is kept unless it is the fallback; if NBU is unreachable and no rate
+     * exists at all, {@link #FALLBACK_RATE} is stored and flagged as fallback.
+     * <p>
+     * Without a real stored rate NBU is called only by the node that takes the
+     * {@value #REFRESH_LEASE} lease, so replicas starting together store one rate and rewrite
+     * prices once; the others get that rate through {@link #syncFromDatabase()}.
+     */
     public void initializeRate() {
-        log.info("Initializing exchange rate on application startup...");
+        log.info("Initializing exchange rate...");
         try {
-            // Check if rate already exists in database
-            BigDecimal existingRate = getCurrentRate();
-            if (existingRate != null) {
-                log.info("Exchange rate already exists in database: {}", existingRate);
+            // Check if a real rate already exists in database
+            RateSnapshot existing = currentSnapshot();
+            if (existing != null && !existing.fallback()) {
+                log.info("Exchange rate already exists in database: {}", existing.rate());
+                // the currency table is stored with each fetch; NBU is only called if there is none yet
+                if (!loadStoredCurrencyRates()) fetchRateFromNbu();
                 return;
             }
-
-            // Fetch rate from NBU API
-            BigDecimal rate = fetchRateFromNbu();
-            if (rate != null) {
-                // Save rate without recalculating books (no books exist yet on startup)
-                rateRepository.deleteAll();
-                Rate newRate = new Rate(LocalDateTime.now(), rate);
-                rateRepository.save(newRate);
-                log.info("Successfully initialized exchange rate from NBU: {}", rate);
-            } else {
-                log.warn("Failed to fetch rate from NBU on startup. Setting default rate to 40.00");
-                // Fallback: set default rate
-                Rate defaultRate = new Rate(LocalDateTime.now(), new BigDecimal("40.00"));
-                rateRepository.save(defaultRate);
+            if (!clusterLease.tryAcquire(REFRESH_LEASE)) {
+                log.info("Initial rate fetch is running on another node; waiting for its rate");
+                return;
             }
+            fetchInitialRate(existing);
         } catch (Exception e) {
-            log.error("Error initializing exchange rate on startup", e);
-            // Set default rate as fallback
+            log.error("Error initializing exchange rate", e);
+            if (currentSnapshot() == null) {
+                try {
+                    storeRate(FALLBACK_RATE, true);
+                    log.info("Set fallback exchange rate {} due to initialization error", FALLBACK_RATE);
+                } catch (Exception ex) {
+                    log.error("Failed to set fallback rate", ex);
+                }
+            }
+        }
+    }
+
+    // replaces no rate or the fallback one with the NBU rate; stores the fallback if there is none
+    private void fetchInitialRate(RateSnapshot existing) {
+        BigDecimal rate = fetchRateFromNbu();
+        if (rate != null) {
+            // books may already have been priced with no rate or the fallback one
+            updateRate(rate);
+            log.info("Successfully initialized exchange rate from NBU: {}", rate);
+        } else if (existing == null) {
+            log.warn("Failed to fetch rate from NBU. Setting fallback rate {}", FALLBACK_RATE);
+            storeRate(FALLBACK_RATE, true);
+        } else {
+            log.warn("Failed to fetch rate from NBU. Keeping fallback rate {}", existing.rate());
+        }
+    }
+
+    /**
+     * Retries NBU while only the fallback rate is available, instead of waiting for the
+     * next daily update. Only the node holding the retry lease calls NBU; the others get
+     * the real rate through {@link #syncFromDatabase()}.
+     */
+    @Scheduled(initialDelayString = "${app.rate.fallback-retry-ms:300000}", fixedDelayString = "${app.rate.fallback-retry-ms:300000}")
+    public void retryFallback() {
+        RateSnapshot current = snapshot.get();
+        if (current != null && current.fallback() && clusterLease.tryAcquire(FALLBACK_RETRY_LEASE)) {
+            log.info("Fallback exchange rate in use; retrying NBU");
             try {
-                Rate defaultRate = new Rate(LocalDateTime.now(), new BigDecimal("40.00"));
-                rateRepository.save(defaultRate);
-                log.info("Set default exchange rate to 40.00 due to initialization error");
-            } catch (Exception ex) {
-                log.error("Failed to set default rate", ex);
+                fetchInitialRate(current);
+            } catch (Exception e) {
+                log.error("Failed to replace fallback exchange rate", e);
             }
         }
     }
 
-    @Transactional
-    public void updateRate(BigDecimal newRate) {
-        lock.writeLock().lock();
-        try {
-            // keep only current rate: delete previous and save single record
-            rateRepository.deleteAll();
+    /**
+     * Stores the new rate and publishes it as a new version. Book prices calculated with
+     * an older version are rewritten afterwards in short id-range chunks, each committed on
+     * its own, so concurrent book writes never wait for the whole recalculation; readers
+     * correct rows that are still stale on the fly (see {@link BookService}).
+     * With {@code app.pricing.computed-eur=true} EUR is derived at read time and the
+     * stored prices are not rewritten at all.
+     */
+    public RecalculationResult updateRate(BigDecimal newRate) {
+        return storeRate(newRate, false);
+    }
+
+    private RecalculationResult storeRate(BigDecimal newRate, boolean fallback) {
+        RateSnapshot published = publishTimer.record(() -> transactionTemplate.execute(status -> {
+            // previous rates stay in the table as history
             Rate rate = new Rate(LocalDateTime.now(), newRate);
-            rateRepository.save(rate);
-            // recalculate all books eur and save
-            List<Book> books = new ArrayList<>();
-            bookRepository.findAll().forEach(books::add);
-            for (Book b : books) {
-                if (b.getPrice() != null && b.getPrice().getUah() != null) {
-                    BigDecimal eur = b.getPrice().getUah().divide(newRate, 2, RoundingMode.HALF_UP);
-                    b.getPrice().setEur(eur);
-                    bookRepository.save(b);
+            rate.setFallback(fallback);
+            rate = rateRepository.save(rate);
+            publish(rate);
+            return RateSnapshot.of(rate);
+        }));
+        long started = System.nanoTime();
+        int updated = recalculateStalePrices(published);
+        long elapsedNanos = System.nanoTime() - started;
+        recalculationTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        recalculatedBooks.increment(updated);
+        long elapsedMillis = elapsedNanos / 1_000_000;
+        log.info("Updated rate to {} (version {}) and recalculated {} books in {} ms",
+                newRate, published.version(), updated, elapsedMillis);
+        return new RecalculationResult(newRate, updated, elapsedMillis);
+    }
+
+    private int recalculateStalePrices(RateSnapshot target) {
+        if (computedEur) return 0;
+        Long maxId = bookRepository.findMaxId();
+        if (maxId == null) return 0;
+        int updated = 0;
+        for (long from = 0; from < maxId; from += recalculationChunkSize) {
+            long to = Math.min(from + recalculationChunkSize, maxId);
+            updated += bookRepository.recalculateEur(target.rate(), target.version(), from, to);
+        }
+        return updated;
+    }
+
+    public BigDecimal getCurrentRate() {
+        RateSnapshot current = currentSnapshot();
+        return current != null ? current.rate() : null;
+    }
+
+    /**
+     * Returns the in-memory rate snapshot. The database is read only until the first
+     * snapshot is loaded or published; afterwards this is a plain volatile read.
+     */
+    public RateSnapshot currentSnapshot() {
+        RateSnapshot current = snapshot.get();
+        if (current == null) {
+            current = rateRepository.findTopByOrderByDateDesc().map(RateSnapshot::of).orElse(null);
+            // never overwrite a snapshot published concurrently by updateRate
+            if (current != null && !snapshot.compareAndSet(null, current)) {
+                current = snapshot.get();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the in-memory snapshot without falling back to the database; {@code null}
+     * until the warm-up (or a rate update) has published one.
+     */
+    public RateSnapshot loadedSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the rate that was in effect at the given moment (the latest rate stored at or
+     * before it), or {@code null} if no rate had been stored yet. Served from the in-memory
+     * history index; the {@code rates} table is read once, on first use.
+     */
+    public RateSnapshot rateAt(LocalDateTime at) {
+        Map.Entry<LocalDateTime, RateSnapshot> entry = loadedHistory().floorEntry(at);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * Returns stored rates in chronological order, optionally limited to {@code [from, to]};
+     * either bound may be {@code null}.
+     */
+    public List<RateSnapshot> history(LocalDateTime from, LocalDateTime to) {
+        NavigableMap<LocalDateTime, RateSnapshot> range = loadedHistory();
+        if (from != null && to != null) {
+            range = range.subMap(from, true, to, true);
+        } else if (from != null) {
+            range = range.tailMap(from, true);
+        } else if (to != null) {
+            range = range.headMap(to, true);
+        }
+        return List.copyOf(range.values());
+    }
+
+    private NavigableMap<LocalDateTime, RateSnapshot> loadedHistory() {
+        if (!historyLoaded) {
+            // a j.u.c. lock rather than synchronized: the query must not pin a virtual thread's carrier
+            historyLoadLock.lock();
+            try {
+                if (!historyLoaded) {
+                    // entries published meanwhile are already committed, so putIfAbsent keeps them
+                    rateRepository.findAllByOrderByDateAsc().forEach(r -> history.putIfAbsent(r.getDate(), RateSnapshot.of(r)));
+                    historyLoaded = true;
                 }
+            } finally {
+                historyLoadLock.unlock();
             }
-            log.info("Updated rate to {} and recalculated {} books", newRate, books.size());
-        } finally {
-            lock.writeLock().unlock();
         }
+        return history;
     }
 
-    public BigDecimal getCurrentRate() {
-        return rateRepository.findTopByOrderByDateDesc().map(Rate::getRate).orElse(null);
+    /**
+     * Returns the rates of all currencies from the latest NBU fetch; empty until the first
+     * successful fetch.
+     */
+    public CurrencyRates currencyRates() {
+        return currencyRates.get();
+    }
+
+    public double snapshotAgeSeconds() {
+        RateSnapshot current = snapshot.get();
+        return current != null ? current.age().toMillis() / 1000.0 : Double.NaN;
+    }
+
+    // makes the new rate visible to readers only once it is committed
+    private void publish(Rate rate) {
+        RateSnapshot next = RateSnapshot.of(rate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshot.set(next);
+                    history.put(next.date(), next);
+                }
+            });
+        } else {
+            snapshot.set(next);
+            history.put(next.date(), next);
+        }
     }
 
+    /**
+     * Daily NBU refresh. With several replicas on one database only the node that takes the
+     * {@value #REFRESH_LEASE} lease fetches the rate and rewrites prices; the others pick the
+     * new rate up through {@link #syncFromDatabase()}.
+     */
     @Scheduled(cron = "0 0 9 * * *", zone = "Europe/Kiev")
     public void scheduledUpdate() {
+        if (!clusterLease.tryAcquire(REFRESH_LEASE)) {
+            log.info("Rate refresh is running on another node; waiting for its rate");
+            return;
+        }
         try {
             BigDecimal rate = fetchRateFromNbu();
             if (rate != null) {
-                updateRate(rate);
+                RecalculationResult result = updateRate(rate);
+                log.info("Scheduled rate update finished: rate={}, books={}, elapsed={} ms",
+                        result.rate(), result.booksRecalculated(), result.elapsedMillis());
             } else {
                 log.warn("NBU returned no rate; keeping previous rate");
             }
@@ -121,20 +339,77 @@ public class RateService {
         }
     }
 
+    /**
+     * Change notification between replicas: cheap {@code MAX} polls of the rates and currency
+     * tables. When another node has stored a newer rate it is loaded and published here, and a
+     * newer currency table stored by that node replaces this node's one. Followers never call
+     * NBU; prices were already rewritten by the node that stored the rate.
+     */
+    @Scheduled(initialDelayString = "${app.rate.sync-ms:30000}", fixedDelayString = "${app.rate.sync-ms:30000}")
+    public void syncFromDatabase() {
+        loadStoredCurrencyRates();
+        Long latestId = rateRepository.findMaxId();
+        RateSnapshot current = snapshot.get();
+        if (latestId == null || (current != null && latestId <= current.version())) return;
+        rateRepository.findById(latestId).ifPresent(rate -> {
+            RateSnapshot next = RateSnapshot.of(rate);
+            // a publish of this node may have raced ahead; never move back to an older version
+            RateSnapshot published = snapshot.accumulateAndGet(next,
+                    (prev, candidate) -> prev != null && prev.version() >= candidate.version() ? prev : candidate);
+            history.put(next.date(), next);
+            if (published == next) {
+                log.info("Picked up rate {} (version {}) stored by another node", next.rate(), next.version());
+            }
+        });
+    }
+
+    // replaces the in-memory currency table with the stored one if that is newer
+    private boolean loadStoredCurrencyRates() {
+        Optional<LocalDateTime> stored = currencyRateRepository.findFetchedAt();
+        if (stored.isEmpty()) return false;
+        LocalDateTime local = currencyRates.get().date();
+        if (local == null || stored.get().isAfter(local)) {
+            currencyRates.set(new CurrencyRates(currencyRateRepository.findRates(), stored.get()));
+        }
+        return true;
+    }
+
+    /**
+     * Fetches all currencies from NBU in one call, replaces the {@link #currencyRates()} table,
+     * stores it for restarts and other replicas, and returns the EUR rate, rounded to 2 decimals.
+     *
+     * @return current EUR/UAH rate from NBU, or {@code null} if it could not be fetched
+     */
     public BigDecimal fetchRateFromNbu() {
+        long started = System.nanoTime();
+        BigDecimal rate = null;
         try {
-            ResponseEntity<Map[]> resp = restTemplate.getForEntity(nbuUrl, Map[].class);
-            Map[] body = resp.getBody();
-            if (body != null && body.length > 0) {
-                Map map = body[0];
-                Object rateObj = map.get("rate");
-                if (rateObj != null) {
-                    return new BigDecimal(rateObj.toString()).setScale(2, RoundingMode.HALF_UP);
-                }
+            Map<String, BigDecimal> rates = nbuRateClient.fetchRates();
+            CurrencyRates table = new CurrencyRates(rates, LocalDateTime.now());
+            currencyRates.set(table);
+            storeCurrencyRates(table, rates);
+            BigDecimal eur = rates.get("EUR");
+            if (eur != null) {
+                rate = eur.setScale(2, RoundingMode.HALF_UP);
+            } else {
+                log.error("NBU response contains no EUR rate");
             }
-        } catch (Exception e) {
-            log.error("Error fetching rate from NBU", e);
+        } catch (NbuClientException e) {
+            log.error("Error fetching rate from NBU: {}", e.getMessage());
+        }
+        (rate != null ? nbuFetchSuccess : nbuFetchFailure).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return rate;
+    }
+
+    // the table in memory is already current; failing to store it only costs others an NBU call
+    private void storeCurrencyRates(CurrencyRates table, Map<String, BigDecimal> rates) {
+        try {
+            transactionTemplate.execute(status -> {
+                currencyRateRepository.replaceAll(rates, table.date());
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not store currency rates: {}", e.getMessage());
         }
-        return null;
     }
 }
@@ -0,0 +1,123 @@
+package ua.polozov.catalog.service;
+
+import ua.polozov.catalog.domain.Rate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Immutable view of the current exchange rate, published by {@link RateService}
+ * so that readers never have to query the {@code rates} table.
+ * <p>
+ * EUR conversion avoids {@link BigDecimal#divide} for ordinary prices: the rate is
+ * pre-scaled to a long once per snapshot and each price is converted with one integer
+ * division, rounding HALF_UP exactly like {@code uah.divide(rate, 2, HALF_UP)}.
+ */
+public final class RateSnapshot {
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+
+    private final long version;
+    private final BigDecimal rate;
+    private final LocalDateTime date;
+    private final boolean fallback;
+
+    // rate == rateUnscaled / rateScaleFactor; rateUnscaled is 0 when the fast path is unavailable
+    private final long rateUnscaled;
+    private final long rateScaleFactor;
+    // largest |uah in cents| that can be multiplied by rateScaleFactor without overflow
+    private final long maxCents;
+
+    public RateSnapshot(long version, BigDecimal rate, LocalDateTime date) {
+        this(version, rate, date, false);
+    }
+
+    /**
+     * @param version  monotonically increasing rate version (id of the {@code rates} row)
+     * @param rate     EUR/UAH exchange rate
+     * @param date     moment the rate was stored
+     * @param fallback whether this is the default rate stored because NBU was unreachable
+     */
+    public RateSnapshot(long version, BigDecimal rate, LocalDateTime date, boolean fallback) {
+        this.version = version;
+        this.rate = Objects.requireNonNull(rate, "rate");
+        this.date = date;
+        this.fallback = fallback;
+        BigDecimal normalized = rate.scale() < 0 ? rate.setScale(0) : rate;
+        if (normalized.signum() > 0 && normalized.scale() < POWERS_OF_TEN.length && normalized.precision() <= 15) {
+            this.rateUnscaled = normalized.unscaledValue().longValueExact();
+            this.rateScaleFactor = POWERS_OF_TEN[normalized.scale()];
+            this.maxCents = Long.MAX_VALUE / rateScaleFactor;
+        } else {
+            this.rateUnscaled = 0;
+            this.rateScaleFactor = 1;
+            this.maxCents = 0;
+        }
+    }
+
+    public static RateSnapshot of(Rate rate) {
+        return new RateSnapshot(rate.getId(), rate.getRate(), rate.getDate(), rate.isFallback());
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public BigDecimal rate() {
+        return rate;
+    }
+
+    public LocalDateTime date() {
+        return date;
+    }
+
+    public boolean fallback() {
+        return fallback;
+    }
+
+    /**
+     * Converts a UAH price to EUR with scale 2, HALF_UP.
+     */
+    public BigDecimal toEur(BigDecimal uah) {
+        int scale = uah.scale();
+        if (rateUnscaled == 0 || scale < 0 || scale > 2 || uah.precision() > 16) {
+            return uah.divide(rate, 2, RoundingMode.HALF_UP);
+        }
+        long cents = uah.unscaledValue().longValue() * POWERS_OF_TEN[2 - scale];
+        long abs = Math.abs(cents);
+        if (abs > maxCents) {
+            return uah.divide(rate, 2, RoundingMode.HALF_UP);
+        }
+        // eur cents = cents * 10^rateScale / rateUnscaled, rounded half away from zero
+        long numerator = abs * rateScaleFactor;
+        long quotient = numerator / rateUnscaled;
+        long remainder = numerator - quotient * rateUnscaled;
+        if (remainder >= rateUnscaled - remainder) quotient++;
+        return BigDecimal.valueOf(cents < 0 ? -quotient : quotient, 2);
+    }
+
+    public Duration age() {
+        return Duration.between(date, LocalDateTime.now());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RateSnapshot that = (RateSnapshot) o;
+        return version == that.version && fallback == that.fallback && rate.equals(that.rate) && Objects.equals(date, that.date);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, rate, date, fallback);
+    }
+
+    @Override
+    public String toString() {
+        return "RateSnapshot[version=" + version + ", rate=" + rate + ", date=" + date + ", fallback=" + fallback + "]";
+    }
+}
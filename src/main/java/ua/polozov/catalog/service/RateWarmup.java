@@ -0,0 +1,29 @@
+package ua.polozov.catalog.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the exchange rate in the background after the application is ready, so context
+ * startup never blocks on the NBU API. Until it finishes, {@link RateHealthIndicator}
+ * keeps the readiness probe out of service. Disabled with {@code app.rate.warmup.enabled=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class RateWarmup {
+
+    private final RateService rateService;
+
+    public RateWarmup(RateService rateService) {
+        this.rateService = rateService;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rateService.initializeRate();
+    }
+}
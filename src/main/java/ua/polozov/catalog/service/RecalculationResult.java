@@ -0,0 +1,13 @@
+package ua.polozov.catalog.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of EUR price recalculation after an exchange rate update.
+ *
+ * @param rate             rate the prices were recalculated with
+ * @param booksRecalculated number of active books whose EUR price was rewritten
+ * @param elapsedMillis    wall-clock duration of the recalculation
+ */
+public record RecalculationResult(BigDecimal rate, int booksRecalculated, long elapsedMillis) {
+}
@@ -1,80 +1,107 @@
 package ua.polozov.catalog.web;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
-import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
+import ua.polozov.catalog.dto.ProblemResponse;
+import ua.polozov.catalog.service.BookNotFoundException;
+
 import java.util.NoSuchElementException;
 
+/**
+ * Maps exceptions to {@link ProblemResponse} bodies. The frequent 404/409 cases come from
+ * stackless domain exceptions and answer with preallocated bodies.
+ */
 @RestControllerAdvice
 public class ApiExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(ApiExceptionHandler.class);
 
+    // client errors repeat in bursts; their warnings are rate-limited per kind
+    private final LogRateLimiter conflictWarnings;
+    private final LogRateLimiter notFoundWarnings;
+    private final LogRateLimiter statusWarnings;
+    private final LogRateLimiter validationWarnings;
+
+    public ApiExceptionHandler(MeterRegistry meterRegistry,
+                               @Value("${app.logging.handler-warnings-per-second:20}") int warningsPerSecond) {
+        this.conflictWarnings = new LogRateLimiter("conflict", warningsPerSecond, meterRegistry);
+        this.notFoundWarnings = new LogRateLimiter("not-found", warningsPerSecond, meterRegistry);
+        this.statusWarnings = new LogRateLimiter("status", warningsPerSecond, meterRegistry);
+        this.validationWarnings = new LogRateLimiter("validation", warningsPerSecond, meterRegistry);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
-    public ResponseEntity<Map<String, Object>> handleIllegal(IllegalArgumentException ex) {
-        Map<String, Object> problem = new HashMap<>();
-        problem.put("type", URI.create("about:blank"));
-        problem.put("title", "Conflict");
-        problem.put("status", 409);
-        problem.put("detail", ex.getMessage());
-        log.warn("Conflict: {}", ex.getMessage());
-        return ResponseEntity.status(409).body(problem);
+    public ResponseEntity<ProblemResponse> handleIllegal(IllegalArgumentException ex) {
+        conflictWarnings.warn(log, "Conflict: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ProblemResponse.of(HttpStatus.CONFLICT, ex.getMessage()));
+    }
+
+    // UX_BOOKS_ACTIVE_ISBN rejected a second active book with the same ISBN
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<ProblemResponse> handleDuplicateKey(DuplicateKeyException ex) {
+        conflictWarnings.warn(log, "Duplicate key: {}", ex.getMostSpecificCause().getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ProblemResponse.ISBN_CONFLICT);
+    }
+
+    // BookConflictException (stale If-Match version) or a lost race on the @Version column
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemResponse> handleOptimisticLock(OptimisticLockingFailureException ex) {
+        conflictWarnings.warn(log, "Optimistic lock conflict: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ProblemResponse.CONCURRENT_MODIFICATION);
+    }
+
+    @ExceptionHandler(BookNotFoundException.class)
+    public ResponseEntity<ProblemResponse> handleBookNotFound(BookNotFoundException ex) {
+        notFoundWarnings.warn(log, "Not found: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ProblemResponse.BOOK_NOT_FOUND);
     }
 
     @ExceptionHandler(NoSuchElementException.class)
-    public ResponseEntity<Map<String, Object>> handleNotFound(NoSuchElementException ex) {
-        Map<String, Object> problem = new HashMap<>();
-        problem.put("type", URI.create("about:blank"));
-        problem.put("title", "Not Found");
-        problem.put("status", 404);
+    public ResponseEntity<ProblemResponse> handleNotFound(NoSuchElementException ex) {
         String detail = ex.getMessage() != null ? ex.getMessage() : "Resource not found";
-        problem.put("detail", detail);
-        log.warn("Not found: {}", detail);
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(problem);
+        notFoundWarnings.warn(log, "Not found: {}", detail);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ProblemResponse.of(HttpStatus.NOT_FOUND, detail));
     }
 
     @ExceptionHandler(NoResourceFoundException.class)
-    public ResponseEntity<Map<String, Object>> handleNoResource(NoResourceFoundException ex) {
-        Map<String, Object> problem = new HashMap<>();
-        problem.put("type", URI.create("about:blank"));
-        problem.put("title", "Not Found");
-        problem.put("status", 404);
+    public ResponseEntity<ProblemResponse> handleNoResource(NoResourceFoundException ex) {
         String detail = ex.getMessage() != null ? ex.getMessage() : "No static resource found";
-        problem.put("detail", detail);
-        log.warn("Static resource not found: {}", detail);
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(problem);
+        notFoundWarnings.warn(log, "Static resource not found: {}", detail);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ProblemResponse.of(HttpStatus.NOT_FOUND, detail));
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ProblemResponse> handleStatus(ResponseStatusException ex) {
+        HttpStatus status = HttpStatus.valueOf(ex.getStatusCode().value());
+        statusWarnings.warn(log, status.getReasonPhrase() + ": {}", ex.getReason());
+        return ResponseEntity.status(status).body(ProblemResponse.of(status, ex.getReason()));
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, Object>> handleValidation(MethodArgumentNotValidException ex) {
-        Map<String, Object> problem = new HashMap<>();
-        problem.put("type", URI.create("about:blank"));
-        problem.put("title", "Validation Failed");
-        problem.put("status", 400);
-        problem.put("detail", ex.getBindingResult().getAllErrors().get(0).getDefaultMessage());
-        log.warn("Validation failed: {}", ex.getBindingResult().getAllErrors());
-        return ResponseEntity.badRequest().body(problem);
+    public ResponseEntity<ProblemResponse> handleValidation(MethodArgumentNotValidException ex) {
+        String detail = ex.getBindingResult().getAllErrors().get(0).getDefaultMessage();
+        validationWarnings.warn(log, "Validation failed: {}", ex.getBindingResult().getAllErrors());
+        return ResponseEntity.badRequest()
+                .body(new ProblemResponse(ProblemResponse.ABOUT_BLANK, "Validation Failed", 400, detail));
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleAll(Exception ex) {
-        Map<String, Object> problem = new HashMap<>();
-        problem.put("type", URI.create("about:blank"));
-        problem.put("title", "Internal Server Error");
-        problem.put("status", 500);
-        String detail = ex.getMessage();
-        if (ex.getCause() != null) detail = ex.getCause().toString();
-        problem.put("detail", detail);
+    public ResponseEntity<ProblemResponse> handleAll(Exception ex) {
         log.error("Unhandled exception", ex);
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(problem);
+        // the message only; the cause chain is in the log, not in the response
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ProblemResponse.of(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage()));
     }
 }
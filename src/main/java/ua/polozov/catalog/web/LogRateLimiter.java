@@ -0,0 +1,57 @@
+package ua.polozov.catalog.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lets at most {@code permitsPerSecond} warnings of one kind through per one-second window
+ * and counts the rest, so a burst of identical client errors cannot flood the log. The first
+ * warning of a new window reports how many were suppressed in the previous ones.
+ */
+class LogRateLimiter {
+
+    private final int permitsPerSecond;
+    private final Counter suppressed;
+    private final LongSupplier clock;
+    private final AtomicLong window = new AtomicLong(-1);
+    private final AtomicInteger used = new AtomicInteger();
+    private final AtomicLong suppressedSinceLast = new AtomicLong();
+
+    LogRateLimiter(String kind, int permitsPerSecond, MeterRegistry meterRegistry) {
+        this(kind, permitsPerSecond, meterRegistry, System::currentTimeMillis);
+    }
+
+    LogRateLimiter(String kind, int permitsPerSecond, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.suppressed = Counter.builder("catalog.log.warnings.suppressed")
+                .description("Handler warnings not logged because their per-second limit was reached")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        this.clock = clock;
+    }
+
+    void warn(Logger log, String format, Object arg) {
+        if (!log.isWarnEnabled()) return;
+        long second = clock.getAsLong() / 1000;
+        long current = window.get();
+        if (second != current && window.compareAndSet(current, second)) {
+            used.set(0);
+        }
+        if (used.incrementAndGet() > permitsPerSecond) {
+            suppressedSinceLast.incrementAndGet();
+            suppressed.increment();
+            return;
+        }
+        long skipped = suppressedSinceLast.getAndSet(0);
+        if (skipped > 0) {
+            log.warn(format + " ({} similar warnings suppressed)", arg, skipped);
+        } else {
+            log.warn(format, arg);
+        }
+    }
+}
@@ -7,14 +7,50 @@ CREATE TABLE "books" (
   "PUBLICATION_YEAR" INT,
   "UAH" DECIMAL(13,2),
   "EUR" DECIMAL(13,2),
-  "DELETED" BOOLEAN DEFAULT FALSE
+  -- version of the rate EUR was calculated with, see RateService
+  "RATE_VERSION" BIGINT,
+  "DELETED" BOOLEAN DEFAULT FALSE,
+  -- optimistic lock version (@Version), incremented on every change; part of the HTTP ETag
+  "VERSION" BIGINT DEFAULT 0,
+  "UPDATED_AT" TIMESTAMP,
+  -- ISBN of an active book, NULL once soft-deleted so the ISBN can be reused
+  "ACTIVE_ISBN" VARCHAR(32) GENERATED ALWAYS AS (CASE WHEN "DELETED" THEN NULL ELSE "ISBN" END)
 );
 
--- unique constraint enforced at application level to allow soft-delete reuse of ISBN
+-- at most one active book per ISBN; NULLs (deleted books) never collide
+CREATE UNIQUE INDEX "UX_BOOKS_ACTIVE_ISBN" ON "books"("ACTIVE_ISBN");
+
+-- listing of active books sorted by a column, with ID as tie-breaker for keyset pagination
+CREATE INDEX "IDX_BOOKS_DELETED_TITLE" ON "books"("DELETED", "TITLE", "ID");
+CREATE INDEX "IDX_BOOKS_DELETED_AUTHOR" ON "books"("DELETED", "AUTHOR", "ID");
+CREATE INDEX "IDX_BOOKS_DELETED_YEAR" ON "books"("DELETED", "PUBLICATION_YEAR", "ID");
+-- change poll of replicas (BookChangeSync): rows written after a (UPDATED_AT, ID) position
+CREATE INDEX "IDX_BOOKS_UPDATED_AT" ON "books"("UPDATED_AT", "ID");
 
 DROP TABLE IF EXISTS "rates";
 CREATE TABLE "rates" (
   "ID" BIGINT PRIMARY KEY AUTO_INCREMENT,
   "DATE" TIMESTAMP,
-  "RATE" DECIMAL(13,2)
+  "RATE" DECIMAL(13,2),
+  -- default rate stored because NBU was unreachable
+  "FALLBACK" BOOLEAN DEFAULT FALSE
+);
+
+-- rate history: latest rate lookup (findTopByOrderByDateDesc) and chronological load
+CREATE INDEX "IDX_RATES_DATE" ON "rates"("DATE");
+
+-- latest NBU table of all currencies (see CurrencyRateRepository), replaced as a whole on each fetch
+DROP TABLE IF EXISTS "currency_rates";
+CREATE TABLE "currency_rates" (
+  "CODE" VARCHAR(3) PRIMARY KEY,
+  "RATE" DECIMAL(19,6) NOT NULL,
+  "FETCHED_AT" TIMESTAMP NOT NULL
+);
+
+-- one row per cluster-wide job (see ClusterLease): the node holding an unexpired lease runs it
+DROP TABLE IF EXISTS "job_leases";
+CREATE TABLE "job_leases" (
+  "NAME" VARCHAR(64) PRIMARY KEY,
+  "OWNER" VARCHAR(128) NOT NULL,
+  "EXPIRES_AT" TIMESTAMP NOT NULL
 );
@@ -0,0 +1,139 @@
+package ua.polozov.catalog.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import ua.polozov.catalog.config.WebConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NbuRateClientTest {
+
+    private static final String RATES_JSON = "["
+            + "{\"r030\":840,\"txt\":\"Долар США\",\"rate\":41.3012,\"cc\":\"USD\",\"exchangedate\":\"17.10.2026\"},"
+            + "{\"r030\":978,\"txt\":\"Євро\",\"rate\":44.1278,\"cc\":\"EUR\",\"exchangedate\":\"17.10.2026\"},"
+            + "{\"r030\":985,\"txt\":\"Злотий\",\"rate\":10.2044,\"cc\":\"PLN\",\"exchangedate\":\"17.10.2026\"}]";
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    // number of leading requests answered with 503
+    private volatile int failFirst;
+    private volatile long delayMillis;
+
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/exchange", exchange -> {
+            int n = requests.incrementAndGet();
+            try {
+                if (delayMillis > 0) Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = RATES_JSON.getBytes(StandardCharsets.UTF_8);
+            int status = n <= failFirst ? 503 : 200;
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        restTemplate = new WebConfig().restTemplate(new RestTemplateBuilder(), 500, 300, 2);
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private NbuRateClient client(int maxAttempts, int failureThreshold) {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/exchange";
+        return new NbuRateClient(restTemplate, url, maxAttempts, 10, failureThreshold, 60_000);
+    }
+
+    @Test
+    void fetchRates_returnsEveryCurrencyFromOneRequest() {
+        Map<String, BigDecimal> rates = client(3, 3).fetchRates();
+
+        assertThat(rates).containsOnlyKeys("USD", "EUR", "PLN");
+        assertThat(rates.get("PLN")).isEqualByComparingTo("10.2044");
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void fetchRates_retriesTransientFailures() {
+        failFirst = 2;
+
+        Map<String, BigDecimal> rates = client(3, 3).fetchRates();
+
+        assertThat(rates.get("EUR")).isEqualByComparingTo("44.1278");
+        assertThat(requests.get()).isEqualTo(3);
+    }
+
+    @Test
+    void fetchRates_failsFastOnHungEndpoint() {
+        delayMillis = 2_000;
+        NbuRateClient client = client(2, 3);
+
+        long started = System.nanoTime();
+        assertThatThrownBy(client::fetchRates).isInstanceOf(NbuClientException.class);
+
+        // two attempts bounded by the 300 ms read timeout, not by the 2 s server delay each
+        assertThat((System.nanoTime() - started) / 1_000_000).isLessThan(2_000);
+    }
+
+    @Test
+    void fetchRates_opensCircuitAfterRepeatedFailures() {
+        failFirst = Integer.MAX_VALUE;
+        NbuRateClient client = client(1, 2);
+
+        assertThatThrownBy(client::fetchRates).isInstanceOf(NbuClientException.class);
+        assertThatThrownBy(client::fetchRates).isInstanceOf(NbuClientException.class);
+        assertThat(client.isCircuitOpen()).isTrue();
+
+        assertThatThrownBy(client::fetchRates)
+                .isInstanceOf(NbuClientException.class)
+                .hasMessageContaining("circuit breaker is open");
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void fetchRates_unexpectedExceptionInHalfOpenTrial_doesNotLockTheCircuit() {
+        RestTemplate failing = mock(RestTemplate.class);
+        when(failing.getForEntity(anyString(), eq(NbuRateDto[].class)))
+                .thenThrow(new ResourceAccessException("connection refused"))
+                .thenThrow(new IllegalStateException("unexpected body"))
+                .thenReturn(ResponseEntity.ok(new NbuRateDto[]{new NbuRateDto(978, "Євро", new BigDecimal("44.1278"), "EUR", "17.10.2026")}));
+        // opens after one failure and half-opens again right away
+        NbuRateClient client = new NbuRateClient(failing, "http://nbu.invalid/exchange", 1, 10, 1, 0);
+
+        assertThatThrownBy(client::fetchRates).isInstanceOf(NbuClientException.class);
+        assertThat(client.isCircuitOpen()).isTrue();
+        // the half-open trial fails with something other than a client error
+        assertThatThrownBy(client::fetchRates).isInstanceOf(NbuClientException.class).hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(client.fetchRates()).containsKey("EUR");
+        assertThat(client.isCircuitOpen()).isFalse();
+    }
+}
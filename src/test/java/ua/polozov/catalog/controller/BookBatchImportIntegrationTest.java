@@ -0,0 +1,75 @@
+package ua.polozov.catalog.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookBatchImportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void ndjsonImport_reportsCreatedDuplicateAndInvalidRows() throws Exception {
+        String body = """
+                {"isbn":"9781111111111","title":"Batch One","price":{"uah":100.00}}
+                {"isbn":"9781111111111","title":"Batch One Again","price":{"uah":120.00}}
+                {"isbn":"not-an-isbn","title":"Broken","price":{"uah":10.00}}
+                """;
+
+        mockMvc.perform(post("/api/v1/books/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.invalid").value(1))
+                .andExpect(jsonPath("$.rows[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.rows[0].id").isNumber())
+                .andExpect(jsonPath("$.rows[1].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$.rows[2].status").value("INVALID"));
+    }
+
+    @Test
+    void jsonArrayImport_createsRows() throws Exception {
+        String body = """
+                [{"isbn":"9782222222222","title":"Array One","price":{"uah":50.00}},
+                 {"isbn":"9782222222223","title":"Array Two","price":{"uah":60.00}}]
+                """;
+
+        mockMvc.perform(post("/api/v1/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rows[1].status").value("CREATED"));
+    }
+
+    @Test
+    void truncatedBody_importsRowsBeforeTheBreakAndReportsWhereItStopped() throws Exception {
+        String body = """
+                [{"isbn":"9781111111130","title":"Before Break One","price":{"uah":50.00}},
+                 {"isbn":"9781111111131","title":"Before Break Two","price":{"uah":60.00}},
+                 {"isbn":"97811111
+                """;
+
+        mockMvc.perform(post("/api/v1/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.invalid").value(1))
+                .andExpect(jsonPath("$.rows[1].status").value("CREATED"))
+                .andExpect(jsonPath("$.rows[2].index").value(2))
+                .andExpect(jsonPath("$.rows[2].status").value("INVALID"));
+    }
+}
@@ -0,0 +1,81 @@
+package ua.polozov.catalog.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.rate.warmup.enabled=false")
+@AutoConfigureMockMvc
+class BookBinaryFormatIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void getBook_negotiatesCborAndSmile_withSeparateEtags() throws Exception {
+        String location = mockMvc.perform(post("/api/v1/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9786666666666\",\"title\":\"Binary\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        String jsonEtag = mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().stringValues(HttpHeaders.VARY, org.hamcrest.Matchers.hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // the ETag follows the negotiated type, not whatever the Accept header mentions
+        mockMvc.perform(get(location).header(HttpHeaders.ACCEPT, "application/json, application/cbor;q=0.1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, jsonEtag));
+
+        MockHttpServletResponse cbor = mockMvc.perform(get(location).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse();
+        JsonNode book = new CBORMapper().readTree(cbor.getContentAsByteArray());
+        assertThat(book.get("isbn").asText()).isEqualTo("9786666666666");
+        assertThat(cbor.getHeader(HttpHeaders.ETAG)).isNotEqualTo(jsonEtag);
+
+        // a JSON ETag does not validate the CBOR representation
+        mockMvc.perform(get(location).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, jsonEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(location).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cbor.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+
+        // a PUT answered in CBOR carries the CBOR tag of the new version
+        String putEtag = mockMvc.perform(put(location).accept(MediaType.APPLICATION_CBOR)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9786666666666\",\"title\":\"Binary\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(location).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, putEtag));
+        mockMvc.perform(get(location))
+                .andExpect(header().string(HttpHeaders.ETAG, org.hamcrest.Matchers.not(putEtag)));
+
+        byte[] smile = mockMvc.perform(get(location).accept(MediaType.parseMediaType(BookController.APPLICATION_SMILE)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(new SmileMapper().readTree(smile).get("title").asText()).isEqualTo("Binary");
+    }
+}
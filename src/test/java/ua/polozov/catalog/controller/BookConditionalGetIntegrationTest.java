@@ -0,0 +1,78 @@
+package ua.polozov.catalog.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ua.polozov.catalog.service.RateService;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// no background rate load, so the rate version only changes where the test changes it
+@SpringBootTest(properties = "app.rate.warmup.enabled=false")
+@AutoConfigureMockMvc
+class BookConditionalGetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RateService rateService;
+
+    @Test
+    void ifNoneMatch_returns304UntilBookOrRateChanges() throws Exception {
+        rateService.updateRate(new BigDecimal("40.00"));
+        String location = mockMvc.perform(post("/api/v1/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9783333333333\",\"title\":\"Cached\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        String etag = mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+
+        mockMvc.perform(get(location).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // a book change invalidates the ETag; PUT is a full replacement, so every required field is sent
+        String written = mockMvc.perform(put(location)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9783333333333\",\"title\":\"Cached, revised\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String revised = mockMvc.perform(get(location).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(revised).isNotEqualTo(etag).isEqualTo(written);
+
+        // so does a rate change, which changes the EUR price
+        rateService.updateRate(new BigDecimal("41.00"));
+        mockMvc.perform(get(location).header(HttpHeaders.IF_NONE_MATCH, revised))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(revised)));
+    }
+
+    @Test
+    void listPage_returns304WhileUnchanged() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/books").param("size", "5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/books").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+}
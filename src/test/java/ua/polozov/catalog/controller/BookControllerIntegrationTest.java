@@ -9,10 +9,13 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ua.polozov.catalog.service.RateService;
+import ua.polozov.catalog.service.RateSnapshot;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,7 +35,7 @@ class BookControllerIntegrationTest {
 
     @Test
     void createBook_returns201AndLocation_andGetReturns201Json() throws Exception {
-        when(rateService.getCurrentRate()).thenReturn(new BigDecimal("25.00"));
+        when(rateService.currentSnapshot()).thenReturn(new RateSnapshot(1L, new BigDecimal("25.00"), LocalDateTime.now()));
 
         String reqJson = "{\n" +
                 "  \"isbn\": \"1234567890123\",\n" +
@@ -59,5 +62,41 @@ class BookControllerIntegrationTest {
                 .andExpect(jsonPath("$.price.uah").value(100.00))
                 .andExpect(jsonPath("$.price.eur").isNumber());
     }
-}
 
+    @Test
+    void createBook_duplicateActiveIsbn_returns409_andIsbnIsReusableAfterDelete() throws Exception {
+        when(rateService.currentSnapshot()).thenReturn(new RateSnapshot(1L, new BigDecimal("25.00"), LocalDateTime.now()));
+        String reqJson = "{\"isbn\":\"9785555555555\",\"title\":\"Unique\",\"author\":\"Tester\",\"price\":{\"uah\":100.00}}";
+
+        String location = mockMvc.perform(post("/api/v1/books").contentType(MediaType.APPLICATION_JSON).content(reqJson))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+
+        // rejected by UX_BOOKS_ACTIVE_ISBN, no lookup beforehand
+        mockMvc.perform(post("/api/v1/books").contentType(MediaType.APPLICATION_JSON).content(reqJson))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.detail").value("Book with same ISBN already exists"));
+
+        mockMvc.perform(delete(location)).andExpect(status().isNoContent());
+
+        mockMvc.perform(post("/api/v1/books").contentType(MediaType.APPLICATION_JSON).content(reqJson))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void search_pageOrSizeOutOfRange_returns400() throws Exception {
+        mockMvc.perform(get("/api/v1/books/search").param("q", "java").param("page", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/books/search").param("q", "java").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void search_pageBeyondIntOffset_returnsEmptyPage() throws Exception {
+        // page * size exceeds Integer.MAX_VALUE
+        mockMvc.perform(get("/api/v1/books/search").param("q", "java").param("size", "1000").param("page", "2147484"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty())
+                .andExpect(header().exists("X-Total-Count"));
+    }
+}
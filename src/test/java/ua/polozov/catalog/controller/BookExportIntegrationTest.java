@@ -0,0 +1,107 @@
+package ua.polozov.catalog.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+import ua.polozov.catalog.repository.BookRepository;
+import ua.polozov.catalog.service.RateService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.rate.warmup.enabled=false")
+@AutoConfigureMockMvc
+class BookExportIntegrationTest {
+
+    private static final String QUOTED = "9788888888881";
+    private static final String STALE = "9788888888882";
+    private static final String DELETED = "9788888888883";
+
+    // the context, and with it the database, outlives a single test
+    private static boolean seeded;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private RateService rateService;
+
+    @BeforeEach
+    void setUp() {
+        if (seeded) return;
+        seeded = true;
+        rateService.updateRate(new BigDecimal("40.00"));
+        long rateVersion = rateService.currentSnapshot().version();
+        // written after the rate change, so nothing rewrites the stale EUR before the export
+        save(QUOTED, "Say \"Hi\", World", "Doe, Jane", new Price(new BigDecimal("80.00"), new BigDecimal("2.00")), rateVersion, false);
+        save(STALE, "Stale", "Author", new Price(new BigDecimal("100.00"), new BigDecimal("99.99")), rateVersion - 1, false);
+        save(DELETED, "Deleted", "Author", new Price(new BigDecimal("100.00"), new BigDecimal("2.50")), rateVersion, true);
+    }
+
+    @Test
+    void ndjson_streamsActiveBooksWithCurrentEur() throws Exception {
+        List<JsonNode> rows = new ArrayList<>();
+        String body = export("ndjson", MediaType.APPLICATION_NDJSON);
+        assertThat(body).endsWith("\n");
+        for (String line : body.split("\n")) {
+            rows.add(objectMapper.readTree(line));
+        }
+
+        assertThat(rows).extracting(n -> n.get("isbn").asText()).contains(QUOTED, STALE).doesNotContain(DELETED);
+        JsonNode quoted = rows.stream().filter(n -> n.get("isbn").asText().equals(QUOTED)).findFirst().orElseThrow();
+        assertThat(quoted.get("title").asText()).isEqualTo("Say \"Hi\", World");
+        JsonNode stale = rows.stream().filter(n -> n.get("isbn").asText().equals(STALE)).findFirst().orElseThrow();
+        assertThat(stale.get("price").get("eur").decimalValue()).isEqualByComparingTo("2.50");
+    }
+
+    @Test
+    void csv_quotesFieldsAndCorrectsStaleEur() throws Exception {
+        String body = export("csv", MediaType.parseMediaType("text/csv"));
+        List<String> lines = List.of(body.split("\n"));
+
+        assertThat(lines.get(0)).isEqualTo("id,isbn,title,author,publicationYear,uah,eur");
+        assertThat(lines).anyMatch(l -> l.endsWith("," + QUOTED + ",\"Say \"\"Hi\"\", World\",\"Doe, Jane\",2020,80.00,2.00"));
+        assertThat(lines).anyMatch(l -> l.endsWith("," + STALE + ",Stale,Author,2020,100.00,2.50"));
+        assertThat(lines).noneMatch(l -> l.contains(DELETED));
+    }
+
+    private String export(String format, MediaType expected) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/v1/books/export").param("format", format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(expected))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private void save(String isbn, String title, String author, Price price, long rateVersion, boolean deleted) {
+        Book book = new Book(null, isbn, title, author, 2020, price);
+        book.setRateVersion(rateVersion);
+        book.setDeleted(deleted);
+        bookRepository.save(book);
+    }
+}
@@ -0,0 +1,133 @@
+package ua.polozov.catalog.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+import ua.polozov.catalog.repository.BookCursor;
+import ua.polozov.catalog.repository.BookRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookKeysetPaginationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Test
+    void cursorWalk_returnsEveryActiveBookOnceInSortOrder() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (String title : new String[]{"Keyset C", "Keyset A", null, "Keyset B", "Keyset A"}) {
+            Book b = new Book(null, "97800000000" + created.size(), title, "Author", 2020,
+                    new Price(new BigDecimal("100.00"), null));
+            created.add(bookRepository.save(b).getId());
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/v1/books").param("size", "2").param("sort", "title,asc"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<JsonNode> walked = new ArrayList<>(read(first));
+        String cursor = first.getResponse().getHeader("X-Next-Cursor");
+        while (cursor != null) {
+            MvcResult next = mockMvc.perform(get("/api/v1/books").param("size", "2").param("after", cursor))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("X-Total-Count"))
+                    .andReturn();
+            walked.addAll(read(next));
+            cursor = next.getResponse().getHeader("X-Next-Cursor");
+        }
+
+        List<Long> ids = walked.stream().map(n -> n.get("id").asLong()).toList();
+        assertThat(ids).doesNotHaveDuplicates().containsAll(created);
+        assertThat(ids).hasSize((int) bookRepository.countByDeletedFalse());
+        for (int i = 1; i < walked.size(); i++) {
+            JsonNode prev = walked.get(i - 1);
+            JsonNode cur = walked.get(i);
+            String prevTitle = prev.get("title").isNull() ? null : prev.get("title").asText();
+            String curTitle = cur.get("title").isNull() ? null : cur.get("title").asText();
+            // nulls first, then title, then id
+            if (prevTitle == null && curTitle != null) continue;
+            assertThat(prevTitle == null || curTitle != null).isTrue();
+            int cmp = prevTitle == null ? 0 : prevTitle.compareTo(curTitle);
+            assertThat(cmp < 0 || (cmp == 0 && prev.get("id").asLong() < cur.get("id").asLong())).isTrue();
+        }
+    }
+
+    @Test
+    void lastPage_isRevalidatedOnceABookIsAppendedAfterIt() throws Exception {
+        long lastId = bookRepository.save(new Book(null, "9780000000901", "Keyset last", "Author", 2020,
+                new Price(new BigDecimal("100.00"), null))).getId();
+        String cursor = new BookCursor("id", Sort.Direction.ASC, null, lastId - 1).encode();
+        String etag = mockMvc.perform(get("/api/v1/books").param("size", "1").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/v1/books").param("size", "1").param("after", cursor).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // same book on the page, but now another page follows
+        bookRepository.save(new Book(null, "9780000000902", "Keyset appended", "Author", 2020,
+                new Price(new BigDecimal("100.00"), null)));
+
+        mockMvc.perform(get("/api/v1/books").param("size", "1").param("after", cursor).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Next-Cursor"));
+    }
+
+    @Test
+    void malformedCursor_returns400() throws Exception {
+        mockMvc.perform(get("/api/v1/books").param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void forgedCursorWithValueOfWrongType_returns400() throws Exception {
+        String forged = new BookCursor("publicationYear", Sort.Direction.ASC, "not-a-year", 1).encode();
+
+        mockMvc.perform(get("/api/v1/books").param("after", forged))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void pageSizeOutOfBounds_returns400() throws Exception {
+        String cursor = new BookCursor("id", Sort.Direction.ASC, null, 0).encode();
+
+        mockMvc.perform(get("/api/v1/books").param("size", "0").param("after", cursor))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/books").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/books").param("page", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/books").param("size", String.valueOf(BookController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<JsonNode> read(MvcResult result) throws Exception {
+        List<JsonNode> nodes = new ArrayList<>();
+        objectMapper.readTree(result.getResponse().getContentAsString()).forEach(nodes::add);
+        return nodes;
+    }
+}
@@ -0,0 +1,102 @@
+package ua.polozov.catalog.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.domain.Price;
+import ua.polozov.catalog.dto.BookRequest;
+import ua.polozov.catalog.repository.BookRepository;
+import ua.polozov.catalog.service.BookService;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.rate.warmup.enabled=false")
+@AutoConfigureMockMvc
+class BookOptimisticLockingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Test
+    void put_withStaleIfMatch_returns412() throws Exception {
+        Long id = bookRepository.save(new Book(null, "9784444444444", "Versioned", "Author", 2020,
+                new Price(new BigDecimal("100.00"), null))).getId();
+        String etag = mockMvc.perform(get("/api/v1/books/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String next = mockMvc.perform(put("/api/v1/books/" + id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9784444444444\",\"title\":\"Versioned, first edit\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(next).isNotEqualTo(etag);
+
+        // a second writer still holding the old ETag must not overwrite the first edit
+        mockMvc.perform(put("/api/v1/books/" + id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9784444444444\",\"title\":\"Versioned, lost edit\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/v1/books/" + id))
+                .andExpect(jsonPath("$.title").value("Versioned, first edit"));
+    }
+
+    @Test
+    void put_ifMatchComparesStrongly_andAcceptsAnyTagOfAList() throws Exception {
+        Long id = bookRepository.save(new Book(null, "9784444444446", "Listed", "Author", 2020,
+                new Price(new BigDecimal("100.00"), null))).getId();
+        String etag = mockMvc.perform(get("/api/v1/books/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String body = "{\"isbn\":\"9784444444446\",\"title\":\"Listed, edited\",\"price\":{\"uah\":100.00}}";
+
+        // the weak form of the current tag never satisfies If-Match
+        mockMvc.perform(put("/api/v1/books/" + id)
+                        .header(HttpHeaders.IF_MATCH, "W/" + etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put("/api/v1/books/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"" + id + ".999.0\", " + etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/books/" + id))
+                .andExpect(jsonPath("$.title").value("Listed, edited"));
+    }
+
+    @Test
+    void updatePartial_basedOnOutdatedVersion_failsInsteadOfOverwriting() {
+        Book book = bookRepository.save(new Book(null, "9784444444445", "Raced", "Author", 2020,
+                new Price(new BigDecimal("100.00"), null)));
+        long readVersion = book.getVersion();
+        bookService.updatePartial(book.getId(), new BookRequest(null, "Raced, winner", null, null, null));
+
+        assertThatThrownBy(() -> bookService.updatePartial(book.getId(),
+                new BookRequest(null, "Raced, loser", null, null, null), readVersion))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(bookRepository.findById(book.getId()).get().getTitle()).isEqualTo("Raced, winner");
+    }
+}
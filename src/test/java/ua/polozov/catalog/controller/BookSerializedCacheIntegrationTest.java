@@ -0,0 +1,98 @@
+package ua.polozov.catalog.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ua.polozov.catalog.dto.BookResponse;
+import ua.polozov.catalog.service.BookCache;
+import ua.polozov.catalog.service.CachedBook;
+import ua.polozov.catalog.service.RateService;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"app.rate.warmup.enabled=false", "app.cache.books.serialized=true"})
+@AutoConfigureMockMvc
+class BookSerializedCacheIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RateService rateService;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void bookAndPagesAreServedFromSerializedBytes_andFollowWritesAndRateChanges() throws Exception {
+        rateService.updateRate(new BigDecimal("40.00"));
+        String location = mockMvc.perform(post("/api/v1/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9787777777777\",\"title\":\"Serialized\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        long id = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+
+        byte[] book = mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.title").value("Serialized"))
+                .andExpect(jsonPath("$.price.eur").value(2.50))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // the GET stored the rendered bytes, and served exactly those
+        CachedBook cached = bookCache.get(id, 0, () -> {
+            throw new AssertionError("book " + id + " is not cached");
+        });
+        assertThat(cached.json()).isNotNull();
+        assertThat(cached.json()).isEqualTo(objectMapper.writeValueAsBytes(cached.response()));
+        assertThat(book).isEqualTo(cached.json());
+
+        // a page splices the cached fragments into bytes ObjectMapper would have written
+        byte[] page = mockMvc.perform(get("/api/v1/books").param("size", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[*].title", hasItem("Serialized")))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(new String(page, StandardCharsets.UTF_8)).contains(new String(cached.json(), StandardCharsets.UTF_8));
+        List<BookResponse> books = objectMapper.readValue(page, new TypeReference<>() {
+        });
+        assertThat(page).isEqualTo(objectMapper.writeValueAsBytes(books));
+
+        // an update drops the cached bytes
+        mockMvc.perform(put(location)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"9787777777777\",\"title\":\"Serialized, revised\",\"price\":{\"uah\":100.00}}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(location))
+                .andExpect(jsonPath("$.title").value("Serialized, revised"));
+        mockMvc.perform(get("/api/v1/books").param("size", "1000"))
+                .andExpect(jsonPath("$[*].title", hasItem("Serialized, revised")));
+
+        // so does a rate change
+        rateService.updateRate(new BigDecimal("50.00"));
+        mockMvc.perform(get(location))
+                .andExpect(jsonPath("$.price.eur").value(2.00));
+    }
+}
@@ -0,0 +1,105 @@
+package ua.polozov.catalog.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ua.polozov.catalog.dto.BookResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BookCache cache = new BookCache(1 << 20, Duration.ofMinutes(10), registry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Supplier<CachedBook> loader(long rateVersion) {
+        return () -> {
+            loads.incrementAndGet();
+            return new CachedBook(new BookResponse(1L, "0131872486", "Thinking in Java", "Bruce Eckel", 2006, null),
+                    0, null, rateVersion);
+        };
+    }
+
+    @Test
+    void get_loadsOnceAndServesHits() {
+        cache.get(1, 1, loader(1));
+        CachedBook hit = cache.get(1, 1, loader(1));
+
+        assertThat(hit.response().title()).isEqualTo("Thinking in Java");
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("cache.gets").tag("cache", "books").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_reloadsEntryPricedWithOlderRate() {
+        cache.get(1, 1, loader(1));
+
+        CachedBook reloaded = cache.get(1, 2, loader(2));
+
+        assertThat(reloaded.rateVersion()).isEqualTo(2);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidate_dropsEntry() {
+        cache.get(1, 1, loader(1));
+
+        cache.invalidate(1);
+        cache.get(1, 1, loader(1));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_doesNotCacheMissingBooks() {
+        assertThat(cache.get(2, 1, () -> {
+            loads.incrementAndGet();
+            return null;
+        })).isNull();
+        cache.get(2, 1, loader(1));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void getWithVersion_reusesOnlyAnEntryOfTheSameRowAndNeverInserts() {
+        // nothing cached: rendered each time, never stored
+        cache.get(1, 5, 1, versioned(5));
+        cache.get(1, 5, 1, versioned(5));
+        assertThat(loads).hasValue(2);
+
+        // a single-book read caches row 5, which pages of that row then reuse
+        cache.get(1, 1, versioned(5));
+        assertThat(cache.get(1, 5, 1, versioned(5)).version()).isEqualTo(5);
+        assertThat(loads).hasValue(3);
+
+        // a page that read a newer row renders it and drops the outdated entry
+        assertThat(cache.get(1, 6, 1, versioned(6)).version()).isEqualTo(6);
+        assertThat(cache.get(1, 1, versioned(6)).version()).isEqualTo(6);
+        assertThat(loads).hasValue(5);
+    }
+
+    @Test
+    void getWithVersion_pageReadRacingAnUpdate_neverPutsTheOldRowBack() {
+        cache.get(1, 1, versioned(5));
+
+        // a page query reads row 5; before it renders, an update to row 6 commits and invalidates
+        cache.invalidate(1);
+        assertThat(cache.get(1, 5, 1, versioned(5)).version()).isEqualTo(5);
+
+        // the next read of the book sees the update, not the page's row
+        assertThat(cache.get(1, 1, versioned(6)).version()).isEqualTo(6);
+    }
+
+    private Supplier<CachedBook> versioned(long version) {
+        return () -> {
+            loads.incrementAndGet();
+            return new CachedBook(new BookResponse(1L, "0131872486", "Thinking in Java", "Bruce Eckel", 2006, null),
+                    new byte[]{'{', '}'}, version, null, 1);
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package ua.polozov.catalog.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ua.polozov.catalog.domain.Book;
+import ua.polozov.catalog.dto.BookRequest;
+import ua.polozov.catalog.dto.BookResponse;
+import ua.polozov.catalog.dto.PriceDto;
+import ua.polozov.catalog.repository.BookRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "app.rate.warmup.enabled=false")
+class BookChangeSyncIntegrationTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookSearchIndex searchIndex;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private BookChangeSync changeSync;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void writesOfAnotherNode_reachCacheAndSearchIndexOnTheNextPoll() {
+        long id = bookService.create(new BookRequest("9789999999991", "Replicated Quokka", "Tester", 2024,
+                new PriceDto(new BigDecimal("100.00"), null))).getId();
+        bookCache.get(id, 0, loader(id));
+        assertThat(loads).hasValue(1);
+
+        // another node renames the book: only the database sees it
+        Book book = bookRepository.findById(id).orElseThrow();
+        book.setTitle("Replicated Wombat");
+        book.setUpdatedAt(LocalDateTime.now());
+        bookRepository.save(book);
+        assertThat(searchIndex.search("wombat", 0, 10).ids()).doesNotContain(id);
+
+        changeSync.syncFromDatabase();
+
+        assertThat(searchIndex.search("wombat", 0, 10).ids()).contains(id);
+        assertThat(searchIndex.search("quokka", 0, 10).ids()).doesNotContain(id);
+        bookCache.get(id, 0, loader(id));
+        assertThat(loads).hasValue(2);
+
+        // and then deletes it
+        book = bookRepository.findById(id).orElseThrow();
+        book.setDeleted(true);
+        book.setUpdatedAt(LocalDateTime.now());
+        bookRepository.save(book);
+
+        changeSync.syncFromDatabase();
+
+        assertThat(searchIndex.search("wombat", 0, 10).ids()).doesNotContain(id);
+    }
+
+    private Supplier<CachedBook> loader(long id) {
+        return () -> {
+            loads.incrementAndGet();
+            return new CachedBook(new BookResponse(id, "9789999999991", "Replicated", "Tester", 2024, null), 0, null, 0);
+        };
+    }
+}
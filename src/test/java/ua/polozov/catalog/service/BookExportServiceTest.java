@@ -0,0 +1,36 @@
+package ua.polozov.catalog.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.polozov.catalog.repository.BookJdbcRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class BookExportServiceTest {
+
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+
+    @Mock
+    private RateService rateService;
+
+    @Test
+    void emptyCatalog_writesNoNdjsonLinesAndOnlyTheCsvHeader() throws Exception {
+        BookExportService exportService = new BookExportService(bookJdbcRepository, rateService, new ObjectMapper(), 1000, false);
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        exportService.writeNdjson(ndjson);
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        exportService.writeCsv(csv);
+
+        assertThat(ndjson.size()).isZero();
+        assertThat(csv.toString(StandardCharsets.UTF_8)).isEqualTo("id,isbn,title,author,publicationYear,uah,eur\n");
+    }
+}
@@ -0,0 +1,101 @@
+package ua.polozov.catalog.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ua.polozov.catalog.domain.Book;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // no transaction is active, so changes apply immediately
+        index = new BookSearchIndex(null);
+        index.add(1, 0, "Thinking in Java", "Bruce Eckel");
+        index.add(2, 0, "Effective Java", "Joshua Bloch");
+        index.add(3, 0, "Java Concurrency in Practice", "Brian Goetz");
+        index.add(4, 0, "Clean Code", "Robert Martin");
+        index.add(5, 0, "Notes", "Java Team");
+    }
+
+    @Test
+    void search_requiresEveryTermAndIgnoresCaseAndPunctuation() {
+        BookSearchIndex.Hits hits = index.search("JAVA, in", 0, 10);
+
+        assertThat(hits.ids()).containsExactly(1L, 3L);
+        assertThat(hits.total()).isEqualTo(2);
+    }
+
+    @Test
+    void search_ranksTitleMatchesAboveAuthorMatches() {
+        BookSearchIndex.Hits hits = index.search("java", 0, 10);
+
+        assertThat(hits.ids()).containsExactly(1L, 2L, 3L, 5L);
+    }
+
+    @Test
+    void search_pagesRankedHits() {
+        BookSearchIndex.Hits hits = index.search("java", 2, 2);
+
+        assertThat(hits.ids()).containsExactly(3L, 5L);
+        assertThat(hits.total()).isEqualTo(4);
+    }
+
+    @Test
+    void search_offsetPastLastHit_returnsNoIdsButTheTotal() {
+        BookSearchIndex.Hits hits = index.search("java", 2_147_484L * 1000, 1000);
+
+        assertThat(hits.ids()).isEmpty();
+        assertThat(hits.total()).isEqualTo(4);
+    }
+
+    @Test
+    void removeAndReindex_keepIndexInSyncWithBooks() {
+        index.remove(2, 1);
+        index.add(4, 1, "Clean Java", "Robert Martin");
+
+        assertThat(index.search("java", 0, 10).ids()).containsExactly(1L, 3L, 4L, 5L);
+        assertThat(index.search("effective", 0, 10).total()).isZero();
+        assertThat(index.search("code", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void refresh_reindexesChangedRowsWithoutTheirOldTerms() {
+        Book renamed = new Book(2L, "0134685997", "Effective Kotlin", "Joshua Bloch", 2018, null);
+        renamed.setVersion(1L);
+        Book deleted = new Book(3L, "0321349601", "Java Concurrency in Practice", "Brian Goetz", 2006, null);
+        deleted.setVersion(1L);
+        deleted.setDeleted(true);
+        Book unchanged = new Book(4L, "0132350882", "Clean Code", "Robert Martin", 2008, null);
+        unchanged.setVersion(0L);
+
+        assertThat(index.refresh(List.of(renamed, deleted, unchanged))).isEqualTo(2);
+        // rows already applied are skipped
+        assertThat(index.refresh(List.of(renamed, deleted))).isZero();
+
+        assertThat(index.search("java", 0, 10).ids()).containsExactly(1L, 5L);
+        assertThat(index.search("kotlin", 0, 10).ids()).containsExactly(2L);
+        assertThat(index.search("goetz", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void refresh_neverIndexesAnOlderRowOverANewerOne() {
+        index.add(2, 3, "Effective Java, 3rd edition", "Joshua Bloch");
+        Book stale = new Book(2L, "0134685997", "Effective Kotlin", "Joshua Bloch", 2018, null);
+        stale.setVersion(2L);
+
+        assertThat(index.refresh(List.of(stale))).isZero();
+        assertThat(index.search("kotlin", 0, 10).total()).isZero();
+        assertThat(index.search("edition", 0, 10).ids()).containsExactly(2L);
+    }
+
+    @Test
+    void search_withoutTerms_returnsNothing() {
+        assertThat(index.search(" ,. ", 0, 10).total()).isZero();
+    }
+}
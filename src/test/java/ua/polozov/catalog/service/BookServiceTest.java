@@ -1,5 +1,6 @@
 package ua.polozov.catalog.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,21 +8,24 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import ua.polozov.catalog.domain.Book;
 import ua.polozov.catalog.domain.Price;
 import ua.polozov.catalog.dto.BookRequest;
 import ua.polozov.catalog.dto.PriceDto;
+import ua.polozov.catalog.repository.BookJdbcRepository;
 import ua.polozov.catalog.repository.BookRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,17 +34,23 @@ class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+
     @Mock
     private RateService rateService;
 
-    private ReentrantReadWriteLock lock;
+    @Mock
+    private BookSearchIndex searchIndex;
+
+    @Mock
+    private BookCache bookCache;
 
     private BookService bookService;
 
     @BeforeEach
     void setUp() {
-        lock = new ReentrantReadWriteLock();
-        bookService = new BookService(bookRepository, rateService, lock);
+        bookService = new BookService(bookRepository, bookJdbcRepository, rateService, searchIndex, bookCache, new SimpleMeterRegistry());
     }
 
     @Test
@@ -49,8 +59,7 @@ class BookServiceTest {
         PriceDto priceDto = new PriceDto(new BigDecimal("200.00"), null);
         BookRequest req = new BookRequest("1234567890123", "Title", "Author", 2021, priceDto);
 
-        when(bookRepository.existsByIsbnAndDeletedFalse(req.isbn())).thenReturn(false);
-        when(rateService.getCurrentRate()).thenReturn(new BigDecimal("50.00"));
+        when(rateService.currentSnapshot()).thenReturn(new RateSnapshot(1L, new BigDecimal("50.00"), LocalDateTime.now()));
         when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
             Book b = invocation.getArgument(0);
             b.setId(1L);
@@ -67,9 +76,12 @@ class BookServiceTest {
         assertThat(created.getPrice()).isNotNull();
         BigDecimal expectedEur = new BigDecimal("200.00").divide(new BigDecimal("50.00"), 2, RoundingMode.HALF_UP);
         assertThat(created.getPrice().getEur()).isEqualByComparingTo(expectedEur);
+        assertThat(created.getRateVersion()).isEqualTo(1L);
 
-        verify(bookRepository).existsByIsbnAndDeletedFalse(req.isbn());
+        // uniqueness is left to the database index: no lookup before the insert
         verify(bookRepository).save(any(Book.class));
+        verifyNoMoreInteractions(bookRepository);
+        verifyNoInteractions(bookJdbcRepository);
     }
 
     @Test
@@ -77,15 +89,22 @@ class BookServiceTest {
         // given
         PriceDto priceDto = new PriceDto(new BigDecimal("100.00"), null);
         BookRequest req = new BookRequest("1234567890", "Title", "Author", 2020, priceDto);
-        when(bookRepository.existsByIsbnAndDeletedFalse(req.isbn())).thenReturn(true);
+        when(bookRepository.save(any(Book.class))).thenThrow(new DuplicateKeyException("UX_BOOKS_ACTIVE_ISBN"));
 
         // when / then
-        assertThatThrownBy(() -> bookService.create(req))
-                .isInstanceOf(IllegalArgumentException.class)
-                .hasMessageContaining("Book with same ISBN already exists");
+        assertThatThrownBy(() -> bookService.create(req)).isInstanceOf(DuplicateKeyException.class);
 
-        verify(bookRepository).existsByIsbnAndDeletedFalse(req.isbn());
-        verify(bookRepository, never()).save(any());
+        verify(searchIndex, never()).add(anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void createBook_unwrapsDuplicateKeyFromAggregateChange() {
+        PriceDto priceDto = new PriceDto(new BigDecimal("100.00"), null);
+        BookRequest req = new BookRequest("1234567890", "Title", "Author", 2020, priceDto);
+        DuplicateKeyException duplicate = new DuplicateKeyException("UX_BOOKS_ACTIVE_ISBN");
+        when(bookRepository.save(any(Book.class))).thenThrow(new IllegalStateException("Failed to execute InsertRoot", duplicate));
+
+        assertThatThrownBy(() -> bookService.create(req)).isSameAs(duplicate);
     }
 
     @Test
@@ -126,7 +145,7 @@ class BookServiceTest {
         PriceDto priceDto = new PriceDto(new BigDecimal("300.00"), null);
         BookRequest req = new BookRequest(null, "NewTitle", null, null, priceDto);
 
-        when(rateService.getCurrentRate()).thenReturn(new BigDecimal("60.00"));
+        when(rateService.currentSnapshot()).thenReturn(new RateSnapshot(1L, new BigDecimal("60.00"), LocalDateTime.now()));
         when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
@@ -142,4 +161,22 @@ class BookServiceTest {
         verify(bookRepository).findById(10L);
         verify(bookRepository).save(any(Book.class));
     }
+
+    @Test
+    void findById_whenPriceCalculatedWithOlderRate_recalculatesEur() {
+        // given book priced with rate version 1
+        Book existing = new Book(7L, "2222222222", "Title", "Author", 2010,
+                new Price(new BigDecimal("100.00"), new BigDecimal("2.00")));
+        existing.setRateVersion(1L);
+        when(bookRepository.findById(7L)).thenReturn(Optional.of(existing));
+        when(rateService.currentSnapshot()).thenReturn(new RateSnapshot(2L, new BigDecimal("40.00"), LocalDateTime.now()));
+
+        // when
+        Book found = bookService.findById(7L).orElseThrow();
+
+        // then
+        assertThat(found.getPrice().getEur()).isEqualByComparingTo(new BigDecimal("2.50"));
+        assertThat(found.getRateVersion()).isEqualTo(2L);
+        verify(bookRepository, never()).save(any());
+    }
 }
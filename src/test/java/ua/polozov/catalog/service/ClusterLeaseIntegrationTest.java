@@ -0,0 +1,34 @@
+package ua.polozov.catalog.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ua.polozov.catalog.repository.LeaseRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "app.rate.warmup.enabled=false")
+class ClusterLeaseIntegrationTest {
+
+    @Autowired
+    private LeaseRepository leaseRepository;
+
+    @Test
+    void onlyOneNodeHoldsALeaseUntilItExpires() {
+        assertThat(leaseRepository.tryAcquire("test-job", "node-a", 60_000)).isTrue();
+        assertThat(leaseRepository.tryAcquire("test-job", "node-b", 60_000)).isFalse();
+        // the holder may renew
+        assertThat(leaseRepository.tryAcquire("test-job", "node-a", 60_000)).isTrue();
+        // leases are independent per job name
+        assertThat(leaseRepository.tryAcquire("other-job", "node-b", 60_000)).isTrue();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByAnotherNode() throws InterruptedException {
+        assertThat(leaseRepository.tryAcquire("short-job", "node-a", 50)).isTrue();
+        Thread.sleep(150);
+
+        assertThat(leaseRepository.tryAcquire("short-job", "node-b", 60_000)).isTrue();
+        assertThat(leaseRepository.tryAcquire("short-job", "node-a", 60_000)).isFalse();
+    }
+}
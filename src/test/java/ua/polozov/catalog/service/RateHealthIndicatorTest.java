@@ -0,0 +1,43 @@
+package ua.polozov.catalog.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateHealthIndicatorTest {
+
+    @Mock
+    private RateService rateService;
+
+    @Test
+    void health_isOutOfServiceUntilRealRateIsLoaded() {
+        RateHealthIndicator indicator = new RateHealthIndicator(rateService, false);
+
+        when(rateService.loadedSnapshot()).thenReturn(null);
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        when(rateService.loadedSnapshot()).thenReturn(new RateSnapshot(1L, RateService.FALLBACK_RATE, LocalDateTime.now(), true));
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(indicator.health().getDetails()).containsEntry("fallback", true);
+
+        when(rateService.loadedSnapshot()).thenReturn(new RateSnapshot(2L, new BigDecimal("41.50"), LocalDateTime.now()));
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void health_withAcceptFallback_isUpOnFallbackRate() {
+        RateHealthIndicator indicator = new RateHealthIndicator(rateService, true);
+        when(rateService.loadedSnapshot()).thenReturn(new RateSnapshot(1L, RateService.FALLBACK_RATE, LocalDateTime.now(), true));
+
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+    }
+}
@@ -8,14 +8,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
+import ua.polozov.catalog.client.NbuRateDto;
 import ua.polozov.catalog.domain.Book;
 import ua.polozov.catalog.domain.Price;
 import ua.polozov.catalog.repository.BookRepository;
 import ua.polozov.catalog.repository.RateRepository;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
@@ -45,24 +44,33 @@ class RateServiceIntegrationTest {
         b.setPrice(new Price(new BigDecimal("100.00"), null));
         bookRepository.save(b);
 
+        // удалённая книга не должна пересчитываться
+        Book deleted = new Book();
+        deleted.setIsbn("998");
+        deleted.setTitle("Deleted");
+        deleted.setPrice(new Price(new BigDecimal("100.00"), null));
+        deleted.setDeleted(true);
+        Long deletedId = bookRepository.save(deleted).getId();
+
         // мок NBU ответ
-        Map<String, Object> rateObj = new HashMap<>();
-        rateObj.put("rate", new BigDecimal("25.00"));
+        NbuRateDto rateObj = new NbuRateDto(978, "Євро", new BigDecimal("25.00"), "EUR", "17.10.2026");
 
         // вместо вызова scheduledUpdate непосредственно протестируем fetchRateFromNbu и updateRate
         // мокируем getForEntity корректно
-        when(restTemplate.getForEntity("https://bank.gov.ua/NBUStatService/v1/statdirectory/exchange?valcode=EUR&json", Map[].class))
-                .thenReturn(ResponseEntity.ok(new Map[]{rateObj}));
+        when(restTemplate.getForEntity("https://bank.gov.ua/NBUStatService/v1/statdirectory/exchange?json", NbuRateDto[].class))
+                .thenReturn(ResponseEntity.ok(new NbuRateDto[]{rateObj}));
 
         BigDecimal rate = rateService.fetchRateFromNbu();
         assertThat(rate).isEqualByComparingTo(new BigDecimal("25.00"));
 
-        rateService.updateRate(rate);
+        RecalculationResult result = rateService.updateRate(rate);
+        assertThat(result.booksRecalculated()).isGreaterThanOrEqualTo(1);
 
         // rate saved
         assertThat(rateRepository.findTopByOrderByDateDesc()).isPresent();
         // книга пересчитана
         Book saved = bookRepository.findByIsbnAndDeletedFalse("999").get();
         assertThat(saved.getPrice().getEur()).isEqualByComparingTo(new BigDecimal("4.00"));
+        assertThat(bookRepository.findById(deletedId).get().getPrice().getEur()).isNull();
     }
 }
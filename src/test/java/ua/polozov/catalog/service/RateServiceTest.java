@@ -0,0 +1,300 @@
+package ua.polozov.catalog.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.polozov.catalog.client.NbuClientException;
+import ua.polozov.catalog.client.NbuRateClient;
+import ua.polozov.catalog.config.MetricsConfig;
+import ua.polozov.catalog.domain.Rate;
+import ua.polozov.catalog.repository.BookRepository;
+import ua.polozov.catalog.repository.CurrencyRateRepository;
+import ua.polozov.catalog.repository.RateRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateServiceTest {
+
+    @Mock
+    private RateRepository rateRepository;
+
+    @Mock
+    private CurrencyRateRepository currencyRateRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private NbuRateClient nbuRateClient;
+
+    @Mock
+    private ClusterLease clusterLease;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private RateService rateService;
+
+    @BeforeEach
+    void setUp() {
+        rateService = new RateService(rateRepository, currencyRateRepository, bookRepository, nbuRateClient, clusterLease, transactionTemplate,
+                10000, false, new SimpleMeterRegistry());
+        // lenient: not every test stores a rate, and some replace the transaction behaviour
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        AtomicLong ids = new AtomicLong(100);
+        lenient().when(rateRepository.save(any(Rate.class))).thenAnswer(inv -> {
+            Rate rate = inv.getArgument(0);
+            rate.setId(ids.incrementAndGet());
+            return rate;
+        });
+    }
+
+    @Test
+    void initializeRate_whenNbuUnavailable_storesFallbackAndReplacesItOnRetry() {
+        when(rateRepository.findTopByOrderByDateDesc()).thenReturn(Optional.empty());
+        when(nbuRateClient.fetchRates())
+                .thenThrow(new NbuClientException("NBU request failed"))
+                .thenReturn(Map.of("EUR", new BigDecimal("41.4967"), "USD", new BigDecimal("38.0512")));
+        when(clusterLease.tryAcquire(RateService.REFRESH_LEASE)).thenReturn(true);
+        when(clusterLease.tryAcquire(RateService.FALLBACK_RETRY_LEASE)).thenReturn(true);
+
+        rateService.initializeRate();
+
+        RateSnapshot fallback = rateService.loadedSnapshot();
+        assertThat(fallback.fallback()).isTrue();
+        assertThat(fallback.rate()).isEqualByComparingTo(RateService.FALLBACK_RATE);
+
+        rateService.retryFallback();
+
+        RateSnapshot current = rateService.loadedSnapshot();
+        assertThat(current.fallback()).isFalse();
+        assertThat(current.rate()).isEqualByComparingTo("41.50");
+        assertThat(current.version()).isGreaterThan(fallback.version());
+        // the same NBU call also refreshed the other currencies
+        assertThat(rateService.currencyRates().convert(new BigDecimal("380.51"), "usd")).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void initializeRate_withStoredRealRate_takesCurrencyTableFromDatabase() {
+        LocalDateTime fetched = LocalDateTime.now().minusHours(1);
+        when(rateRepository.findTopByOrderByDateDesc()).thenReturn(Optional.of(rate(5L, fetched, "41.50")));
+        when(currencyRateRepository.findFetchedAt()).thenReturn(Optional.of(fetched));
+        when(currencyRateRepository.findRates()).thenReturn(Map.of("USD", new BigDecimal("38.0512")));
+
+        rateService.initializeRate();
+
+        assertThat(rateService.currencyRates().convert(new BigDecimal("380.51"), "USD")).isEqualByComparingTo("10.00");
+        assertThat(rateService.currencyRates().date()).isEqualTo(fetched);
+        verifyNoInteractions(nbuRateClient);
+    }
+
+    @Test
+    void initializeRate_withoutStoredRate_whenLeaseHeldByAnotherNode_waitsForItsRate() {
+        when(rateRepository.findTopByOrderByDateDesc()).thenReturn(Optional.empty());
+        when(clusterLease.tryAcquire(RateService.REFRESH_LEASE)).thenReturn(false);
+
+        rateService.initializeRate();
+
+        verifyNoInteractions(nbuRateClient);
+        verify(rateRepository, never()).save(any());
+        verifyNoInteractions(bookRepository);
+        assertThat(rateService.loadedSnapshot()).isNull();
+
+        // the lease holder's rate arrives with the next poll
+        Rate stored = rate(7L, LocalDateTime.now(), "41.50");
+        when(rateRepository.findMaxId()).thenReturn(stored.getId());
+        when(rateRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+
+        rateService.syncFromDatabase();
+
+        assertThat(rateService.loadedSnapshot().version()).isEqualTo(7L);
+        verifyNoInteractions(nbuRateClient);
+    }
+
+    @Test
+    void fetchRateFromNbu_storesTheCurrencyTable() {
+        when(nbuRateClient.fetchRates()).thenReturn(Map.of("EUR", new BigDecimal("41.4967"), "USD", new BigDecimal("38.0512")));
+
+        rateService.fetchRateFromNbu();
+
+        verify(currencyRateRepository).replaceAll(eq(Map.of("EUR", new BigDecimal("41.4967"), "USD", new BigDecimal("38.0512"))),
+                eq(rateService.currencyRates().date()));
+    }
+
+    @Test
+    void retryFallback_whenRealRateLoaded_doesNotCallNbu() {
+        rateService.updateRate(new BigDecimal("41.50"));
+
+        rateService.retryFallback();
+
+        verifyNoInteractions(nbuRateClient);
+    }
+
+    @Test
+    void scheduledUpdate_whenLeaseHeldByAnotherNode_doesNotFetchOrWrite() {
+        when(clusterLease.tryAcquire(RateService.REFRESH_LEASE)).thenReturn(false);
+
+        rateService.scheduledUpdate();
+
+        verifyNoInteractions(nbuRateClient);
+        verify(rateRepository, never()).save(any());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void syncFromDatabase_publishesNewerRateStoredByAnotherNode() {
+        rateService.updateRate(new BigDecimal("41.50"));
+        long ownVersion = rateService.loadedSnapshot().version();
+        Rate stored = rate(ownVersion + 1, LocalDateTime.now(), "42.10");
+        when(rateRepository.findMaxId()).thenReturn(stored.getId());
+        when(rateRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+        LocalDateTime fetched = LocalDateTime.now();
+        when(currencyRateRepository.findFetchedAt()).thenReturn(Optional.of(fetched));
+        when(currencyRateRepository.findRates()).thenReturn(Map.of("EUR", new BigDecimal("42.1011"), "USD", new BigDecimal("38.0512")));
+
+        rateService.syncFromDatabase();
+
+        assertThat(rateService.loadedSnapshot().version()).isEqualTo(stored.getId());
+        assertThat(rateService.loadedSnapshot().rate()).isEqualByComparingTo("42.10");
+        // the currency table comes from the node that fetched it
+        assertThat(rateService.currencyRates().rate("USD")).isEqualByComparingTo("38.0512");
+        assertThat(rateService.currencyRates().date()).isEqualTo(fetched);
+        // nothing new on the next poll: two MAX queries, no row read, no table read
+        rateService.syncFromDatabase();
+        verify(rateRepository, times(1)).findById(any());
+        verify(currencyRateRepository, times(1)).findRates();
+        verify(nbuRateClient, never()).fetchRates();
+        // the follower does not store the rate again
+        verify(rateRepository, times(1)).save(any(Rate.class));
+    }
+
+    @Test
+    void rateAt_returnsRateInEffectAtTheGivenMoment() {
+        LocalDateTime jan = LocalDateTime.of(2024, 1, 1, 9, 0);
+        LocalDateTime feb = LocalDateTime.of(2024, 2, 1, 9, 0);
+        when(rateRepository.findAllByOrderByDateAsc()).thenReturn(List.of(rate(1L, jan, "40.00"), rate(2L, feb, "42.00")));
+
+        assertThat(rateService.rateAt(jan.minusSeconds(1))).isNull();
+        assertThat(rateService.rateAt(jan).rate()).isEqualByComparingTo("40.00");
+        assertThat(rateService.rateAt(feb.minusDays(1)).rate()).isEqualByComparingTo("40.00");
+        assertThat(rateService.rateAt(feb.plusDays(1)).version()).isEqualTo(2L);
+        assertThat(rateService.history(feb, null)).extracting(RateSnapshot::version).containsExactly(2L);
+
+        // history is read from the database once; new rates are added as they are published
+        rateService.updateRate(new BigDecimal("43.00"));
+        assertThat(rateService.rateAt(LocalDateTime.now()).rate()).isEqualByComparingTo("43.00");
+        assertThat(rateService.history(null, null)).hasSize(3);
+        verify(rateRepository, times(1)).findAllByOrderByDateAsc();
+        verify(rateRepository, never()).deleteAll();
+    }
+
+    @Test
+    void updateRate_publishesSnapshotOnlyAfterCommit() {
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inTransaction(inv.getArgument(0), true));
+
+        rateService.updateRate(new BigDecimal("41.50"));
+
+        RateSnapshot published = rateService.loadedSnapshot();
+        assertThat(published.rate()).isEqualByComparingTo("41.50");
+        assertThat(rateService.rateAt(LocalDateTime.now())).isEqualTo(published);
+    }
+
+    @Test
+    void updateRate_whenTransactionRollsBack_publishesNothing() {
+        rateService.updateRate(new BigDecimal("41.50"));
+        RateSnapshot before = rateService.loadedSnapshot();
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inTransaction(inv.getArgument(0), false));
+
+        assertThatThrownBy(() -> rateService.updateRate(new BigDecimal("42.00")))
+                .isInstanceOf(TransactionSystemException.class);
+
+        assertThat(rateService.loadedSnapshot()).isSameAs(before);
+        assertThat(rateService.history(null, null)).containsExactly(before);
+        // prices are not recalculated for a rate that was never stored
+        verify(bookRepository, times(1)).findMaxId();
+    }
+
+    @Test
+    void currentSnapshot_loadsFromDatabaseOnce() {
+        when(rateRepository.findTopByOrderByDateDesc()).thenReturn(Optional.of(rate(7L, LocalDateTime.now(), "41.00")));
+
+        assertThat(rateService.loadedSnapshot()).isNull();
+        assertThat(rateService.currentSnapshot().version()).isEqualTo(7L);
+        assertThat(rateService.currentSnapshot().version()).isEqualTo(7L);
+
+        verify(rateRepository, times(1)).findTopByOrderByDateDesc();
+    }
+
+    @Test
+    void currentSnapshot_neverReplacesRatePublishedDuringTheLoad() {
+        // the lazy load reads the old row while a rate update publishes a newer one
+        when(rateRepository.findTopByOrderByDateDesc()).thenAnswer(inv -> {
+            rateService.updateRate(new BigDecimal("42.00"));
+            return Optional.of(rate(7L, LocalDateTime.now().minusDays(1), "41.00"));
+        });
+
+        RateSnapshot current = rateService.currentSnapshot();
+
+        assertThat(current.rate()).isEqualByComparingTo("42.00");
+        assertThat(rateService.loadedSnapshot()).isSameAs(current);
+    }
+
+    @Test
+    void snapshotAgeGauge_reportsAgeOfPublishedRate() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new MetricsConfig().rateSnapshotMetrics(rateService).bindTo(registry);
+        Gauge age = registry.get("catalog.rate.snapshot.age").gauge();
+
+        assertThat(age.value()).isNaN();
+        rateService.updateRate(new BigDecimal("41.50"));
+        assertThat(age.value()).isBetween(0.0, 60.0);
+    }
+
+    // runs the callback with transaction synchronization active, then commits or rolls back;
+    // until then the rate stored by the callback must not be visible
+    private Object inTransaction(TransactionCallback<?> callback, boolean commit) {
+        RateSnapshot before = rateService.loadedSnapshot();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Object result = callback.doInTransaction(null);
+            assertThat(rateService.loadedSnapshot()).isSameAs(before);
+            if (!commit) {
+                TransactionSynchronizationUtils.invokeAfterCompletion(
+                        TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+                throw new TransactionSystemException("commit failed");
+            }
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Rate rate(long id, LocalDateTime date, String value) {
+        Rate rate = new Rate(date, new BigDecimal(value));
+        rate.setId(id);
+        return rate;
+    }
+}
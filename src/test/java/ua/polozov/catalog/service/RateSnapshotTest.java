@@ -0,0 +1,46 @@
+package ua.polozov.catalog.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateSnapshotTest {
+
+    @Test
+    void toEur_matchesBigDecimalDivideHalfUp() {
+        Random random = new Random(42);
+        for (String r : new String[]{"40.00", "41.23", "40.5", "48.1234", "1", "0.07", "45.123456", "3E+1"}) {
+            BigDecimal rate = new BigDecimal(r);
+            RateSnapshot snapshot = new RateSnapshot(1L, rate, LocalDateTime.now());
+            for (int i = 0; i < 100_000; i++) {
+                long unscaled = (long) (random.nextDouble() * Math.pow(10, random.nextInt(16)));
+                if (random.nextInt(10) == 0) unscaled = -unscaled;
+                BigDecimal uah = BigDecimal.valueOf(unscaled, random.nextInt(3));
+
+                assertThat(snapshot.toEur(uah)).isEqualTo(uah.divide(rate, 2, RoundingMode.HALF_UP));
+            }
+        }
+    }
+
+    @Test
+    void toEur_roundsHalfUp() {
+        RateSnapshot snapshot = new RateSnapshot(1L, new BigDecimal("40.00"), LocalDateTime.now());
+
+        assertThat(snapshot.toEur(new BigDecimal("0.20"))).isEqualTo(new BigDecimal("0.01"));
+        assertThat(snapshot.toEur(new BigDecimal("0.19"))).isEqualTo(new BigDecimal("0.00"));
+        assertThat(snapshot.toEur(new BigDecimal("100.00"))).isEqualTo(new BigDecimal("2.50"));
+    }
+
+    @Test
+    void toEur_fallsBackToDivideForUnusualScales() {
+        RateSnapshot snapshot = new RateSnapshot(1L, new BigDecimal("40.00"), LocalDateTime.now());
+        BigDecimal uah = new BigDecimal("100.005");
+
+        assertThat(snapshot.toEur(uah)).isEqualTo(uah.divide(new BigDecimal("40.00"), 2, RoundingMode.HALF_UP));
+    }
+}
@@ -0,0 +1,35 @@
+package ua.polozov.catalog.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class LogRateLimiterTest {
+
+    @Test
+    void limitsWarningsPerSecondAndReportsSuppressedCount() {
+        Logger log = mock(Logger.class);
+        when(log.isWarnEnabled()).thenReturn(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicLong now = new AtomicLong(10_000);
+        LogRateLimiter limiter = new LogRateLimiter("not-found", 2, registry, now::get);
+
+        for (int i = 0; i < 5; i++) limiter.warn(log, "Not found: {}", "book " + i);
+
+        verify(log, times(2)).warn(anyString(), any(Object.class));
+        assertThat(registry.counter("catalog.log.warnings.suppressed", "kind", "not-found").count()).isEqualTo(3);
+
+        // next window: logged again, carrying the number suppressed before
+        now.addAndGet(1_000);
+        limiter.warn(log, "Not found: {}", "book 5");
+
+        verify(log).warn("Not found: {} ({} similar warnings suppressed)", "book 5", 3L);
+    }
+}